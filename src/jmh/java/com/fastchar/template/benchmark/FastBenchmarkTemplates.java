@@ -0,0 +1,216 @@
+package com.fastchar.template.benchmark;
+
+import com.fastchar.core.FastHandler;
+import com.fastchar.template.FastTemplateHelper;
+import com.fastchar.template.info.FastCompiledTemplate;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试使用的样例模板及数据，可执行 main 方法将样例模板输出到目录中查看
+ */
+public final class FastBenchmarkTemplates {
+
+    private FastBenchmarkTemplates() {
+    }
+
+    /**
+     * 关闭POI的zip炸弹检查，生成的文档内容重复度高，压缩比会触发该检查；在基准的 Setup 中调用，TearDown 中使用
+     * {@link #restoreInflateRatio(double)} 恢复
+     *
+     * @return 原最小压缩比
+     */
+    public static double relaxInflateRatio() {
+        double minInflateRatio = ZipSecureFile.getMinInflateRatio();
+        ZipSecureFile.setMinInflateRatio(0);
+        return minInflateRatio;
+    }
+
+    /**
+     * 恢复POI的zip炸弹检查
+     *
+     * @param minInflateRatio {@link #relaxInflateRatio()} 返回的原最小压缩比
+     */
+    public static void restoreInflateRatio(double minInflateRatio) {
+        ZipSecureFile.setMinInflateRatio(minInflateRatio);
+    }
+
+    /**
+     * 通过 FastTemplateHelper 渲染模板，与业务调用的路径一致，渲染失败时抛出异常使基准失败
+     *
+     * @param data             数据集合
+     * @param compiledTemplate 已解析的模板
+     * @param fileType         输出的文件类型
+     * @return 输出的字节数
+     */
+    public static int render(Map<String, Object> data, FastCompiledTemplate compiledTemplate, String fileType) throws Exception {
+        FastHandler handler = new FastHandler();
+        handler.put("__data", data);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        FastTemplateHelper.renderStream(handler, compiledTemplate, outputStream, fileType);
+        if (handler.get("__exception") != null) {
+            throw new IllegalStateException((Throwable) handler.get("__exception"));
+        }
+        return outputStream.size();
+    }
+
+    /**
+     * Excel列表模板：标题行、列表行、合计行
+     */
+    public static byte[] excelList() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("list");
+        Row headRow = sheet.createRow(0);
+        headRow.createCell(0).setCellValue("${title}");
+        Row listRow = sheet.createRow(1);
+        listRow.createCell(0).setCellValue("${list[i].name}");
+        listRow.createCell(1).setCellValue("${list[i].value}");
+        listRow.createCell(2).setCellValue("${list[i].remark}");
+        sheet.createRow(2).createCell(0).setCellValue("合计：${total}");
+        return write(workbook);
+    }
+
+    /**
+     * Excel多工作表模板，每个工作表与 excelList 的结构相同
+     *
+     * @param sheets 工作表数
+     */
+    public static byte[] excelSheets(int sheets) throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        for (int i = 0; i < sheets; i++) {
+            Sheet sheet = workbook.createSheet("list" + i);
+            sheet.createRow(0).createCell(0).setCellValue("${title}");
+            Row listRow = sheet.createRow(1);
+            listRow.createCell(0).setCellValue("${list[i].name}");
+            listRow.createCell(1).setCellValue("${list[i].value}");
+            listRow.createCell(2).setCellValue("${list[i].remark}");
+            sheet.createRow(2).createCell(0).setCellValue("合计：${total}");
+        }
+        return write(workbook);
+    }
+
+    /**
+     * Word段落模板，每个段落包含3个变量
+     *
+     * @param paragraphs 段落数
+     */
+    public static byte[] wordParagraphs(int paragraphs) throws IOException {
+        XWPFDocument document = new XWPFDocument();
+        for (int i = 0; i < paragraphs; i++) {
+            document.createParagraph().createRun().setText("第" + i + "条：合同编号${code}，甲方${name}，金额${amount}元。");
+        }
+        return write(document);
+    }
+
+    /**
+     * Word单个段落模板，段落由大量文本块组成且变量被拆分到多个文本块中
+     *
+     * @param runs 文本块数量
+     */
+    public static byte[] wordRuns(int runs) throws IOException {
+        XWPFDocument document = new XWPFDocument();
+        XWPFParagraph paragraph = document.createParagraph();
+        String[] pieces = {"合同编号：", "$", "{", "code", "}", "，甲方：", "${name}", "，金额：", "${amo", "unt}", "元；"};
+        for (int i = 0; i < runs; i++) {
+            paragraph.createRun().setText(pieces[i % pieces.length]);
+        }
+        return write(document);
+    }
+
+    /**
+     * Word表格模板，${table} 的值为 FastWordTableInfo
+     */
+    public static byte[] wordTable() throws IOException {
+        XWPFDocument document = new XWPFDocument();
+        document.createParagraph().createRun().setText("附件：${title}");
+        document.createParagraph().createRun().setText("${table}");
+        document.createParagraph().createRun().setText("合计：${total}");
+        return write(document);
+    }
+
+    /**
+     * 合同类数据：code、name、amount
+     */
+    public static Map<String, Object> contractData() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("code", "HT-2021-0001");
+        data.put("name", "某某科技有限公司");
+        data.put("amount", 10000);
+        return data;
+    }
+
+    /**
+     * 列表数据，列表项包含 name、value、remark
+     *
+     * @param rows 列表行数
+     */
+    public static Map<String, Object> listData(int rows) {
+        List<Map<String, Object>> list = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", "名称" + i);
+            item.put("value", i);
+            item.put("remark", "备注" + i);
+            list.add(item);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "列表基准");
+        data.put("total", rows);
+        data.put("list", list);
+        return data;
+    }
+
+    private static byte[] write(XSSFWorkbook workbook) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        workbook.write(outputStream);
+        workbook.close();
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] write(XWPFDocument document) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        document.write(outputStream);
+        document.close();
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 输出样例模板
+     *
+     * @param args 输出目录，默认：target/benchmark-templates
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "target/benchmark-templates");
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException(dir + "创建失败！");
+        }
+        save(new File(dir, "list.xlsx"), excelList());
+        save(new File(dir, "sheets.xlsx"), excelSheets(8));
+        save(new File(dir, "paragraphs.docx"), wordParagraphs(100));
+        save(new File(dir, "runs.docx"), wordRuns(1000));
+        save(new File(dir, "table.docx"), wordTable());
+    }
+
+    private static void save(File file, byte[] content) throws IOException {
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+    }
+}
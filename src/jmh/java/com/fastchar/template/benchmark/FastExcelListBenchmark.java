@@ -0,0 +1,59 @@
+package com.fastchar.template.benchmark;
+
+import com.fastchar.template.FastTemplateCache;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.provider.FastExcelDataWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excel列表导出的基准：列表模板展开，以及使用 FastExcelDataWriter 不经过模板直接写出相同的数据，耗时应随列表行数线性增长
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+public class FastExcelListBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    private FastCompiledTemplate template;
+
+    private Map<String, Object> data;
+
+    private double minInflateRatio;
+
+    @Setup
+    public void setup() throws Exception {
+        minInflateRatio = FastBenchmarkTemplates.relaxInflateRatio();
+        template = FastTemplateCache.get(FastBenchmarkTemplates.excelList());
+        data = FastBenchmarkTemplates.listData(rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FastBenchmarkTemplates.restoreInflateRatio(minInflateRatio);
+    }
+
+    @Benchmark
+    public int renderList() throws Exception {
+        return FastBenchmarkTemplates.render(data, template, "xlsx");
+    }
+
+    @Benchmark
+    public int writeDirect() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new FastExcelDataWriter()
+                .addColumn("名称", "name")
+                .addColumn("数值", "value")
+                .addColumn("备注", "remark")
+                .write((List<?>) data.get("list"), outputStream);
+        return outputStream.size();
+    }
+}
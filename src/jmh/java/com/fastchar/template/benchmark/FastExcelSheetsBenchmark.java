@@ -0,0 +1,59 @@
+package com.fastchar.template.benchmark;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.FastTemplateCache;
+import com.fastchar.template.FastTemplateConfig;
+import com.fastchar.template.info.FastCompiledTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excel多工作表渲染的基准：对比顺序解析与在线程池中并行解析各工作表，需在多核机器上运行才能体现差异
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+public class FastExcelSheetsBenchmark {
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    @Param({"8"})
+    private int sheets;
+
+    @Param({"5000"})
+    private int rows;
+
+    private FastCompiledTemplate template;
+
+    private Map<String, Object> data;
+
+    private double minInflateRatio;
+
+    private boolean parallelSheets;
+
+    @Setup
+    public void setup() throws Exception {
+        minInflateRatio = FastBenchmarkTemplates.relaxInflateRatio();
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        parallelSheets = templateConfig.isExcelParallelSheets();
+        templateConfig.setExcelParallelSheets(parallel);
+        template = FastTemplateCache.get(FastBenchmarkTemplates.excelSheets(sheets));
+        data = FastBenchmarkTemplates.listData(rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FastChar.getConfig(FastTemplateConfig.class).setExcelParallelSheets(parallelSheets);
+        FastBenchmarkTemplates.restoreInflateRatio(minInflateRatio);
+    }
+
+    @Benchmark
+    public int renderSheets() throws Exception {
+        return FastBenchmarkTemplates.render(data, template, "xlsx");
+    }
+}
@@ -0,0 +1,72 @@
+package com.fastchar.template.benchmark;
+
+import com.fastchar.core.FastHandler;
+import com.fastchar.template.FastTemplateHelper;
+import com.fastchar.template.info.FastTemplatePlaceholder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FastTemplateHelper.renderData 变量取值的基准：每次新建上下文的首次取值、已缓存的取值、按下标遍历列表变量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+@State(Scope.Benchmark)
+public class FastTemplateDataBenchmark {
+
+    private static final String[] KEYS = {"title", "user.name", "user.address.city", "list.length", "list[3].name"};
+
+    private Map<String, Object> data;
+
+    private FastHandler warmHandler;
+
+    private List<FastTemplatePlaceholder> listPlaceholders;
+
+    @Setup
+    public void setup() {
+        data = FastBenchmarkTemplates.listData(1000);
+        Map<String, Object> address = new HashMap<>();
+        address.put("city", "杭州");
+        Map<String, Object> user = new HashMap<>();
+        user.put("name", "张三");
+        user.put("address", address);
+        data.put("user", user);
+
+        warmHandler = new FastHandler();
+        warmHandler.put("__data", data);
+        listPlaceholders = FastTemplatePlaceholder.parse("${list[i].name}-${list[i].value}-${list[i].remark}");
+    }
+
+    @Benchmark
+    public void resolveCold(Blackhole blackhole) {
+        FastHandler handler = new FastHandler();
+        handler.put("__data", data);
+        for (String key : KEYS) {
+            blackhole.consume(FastTemplateHelper.renderData(handler, key));
+        }
+    }
+
+    @Benchmark
+    public void resolveCached(Blackhole blackhole) {
+        for (String key : KEYS) {
+            blackhole.consume(FastTemplateHelper.renderData(warmHandler, key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void resolveList(Blackhole blackhole) {
+        for (int i = 0; i < 1000; i++) {
+            for (FastTemplatePlaceholder placeholder : listPlaceholders) {
+                blackhole.consume(FastTemplateHelper.renderData(warmHandler, placeholder, i));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.fastchar.template.benchmark;
+
+import com.fastchar.template.FastTemplateCache;
+import com.fastchar.template.info.FastCompiledTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Word段落变量替换的基准：大量普通段落，以及由大量文本块组成且变量被拆分到多个文本块中的单个段落，耗时应随段落及文本块数量线性增长
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+public class FastWordParagraphBenchmark {
+
+    @Param({"1000", "5000", "20000"})
+    private int size;
+
+    private FastCompiledTemplate paragraphsTemplate;
+
+    private FastCompiledTemplate runsTemplate;
+
+    private Map<String, Object> data;
+
+    private double minInflateRatio;
+
+    @Setup
+    public void setup() throws Exception {
+        minInflateRatio = FastBenchmarkTemplates.relaxInflateRatio();
+        paragraphsTemplate = FastTemplateCache.get(FastBenchmarkTemplates.wordParagraphs(size));
+        runsTemplate = FastTemplateCache.get(FastBenchmarkTemplates.wordRuns(size));
+        data = FastBenchmarkTemplates.contractData();
+    }
+
+    @TearDown
+    public void tearDown() {
+        FastBenchmarkTemplates.restoreInflateRatio(minInflateRatio);
+    }
+
+    @Benchmark
+    public int renderParagraphs() throws Exception {
+        return FastBenchmarkTemplates.render(data, paragraphsTemplate, "docx");
+    }
+
+    @Benchmark
+    public int renderRuns() throws Exception {
+        return FastBenchmarkTemplates.render(data, runsTemplate, "docx");
+    }
+}
@@ -0,0 +1,53 @@
+package com.fastchar.template.benchmark;
+
+import com.fastchar.template.FastTemplateCache;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.provider.FastWordPdfConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Word模板输出PDF的吞吐量基准，与输出docx对比，转换器在Setup中预热；
+ * 使用 -t 指定线程数可测试并发转换，同时转换的数量受 FastTemplateConfig.setPdfConcurrency 限制
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+public class FastWordPdfBenchmark {
+
+    @Param({"50", "500"})
+    private int size;
+
+    private FastCompiledTemplate template;
+
+    private Map<String, Object> data;
+
+    private double minInflateRatio;
+
+    @Setup
+    public void setup() throws Exception {
+        minInflateRatio = FastBenchmarkTemplates.relaxInflateRatio();
+        template = FastTemplateCache.get(FastBenchmarkTemplates.wordParagraphs(size));
+        data = FastBenchmarkTemplates.contractData();
+        FastWordPdfConverter.warmUp();
+    }
+
+    @TearDown
+    public void tearDown() {
+        FastBenchmarkTemplates.restoreInflateRatio(minInflateRatio);
+    }
+
+    @Benchmark
+    public int renderDocx() throws Exception {
+        return FastBenchmarkTemplates.render(data, template, "docx");
+    }
+
+    @Benchmark
+    public int renderPdf() throws Exception {
+        return FastBenchmarkTemplates.render(data, template, "pdf");
+    }
+}
@@ -0,0 +1,93 @@
+package com.fastchar.template.benchmark;
+
+import com.fastchar.template.FastTemplateCache;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.info.FastWordTableInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FastWordTableInfo 生成表格的基准，分别使用 values 列表及逐行生成的 valueIterator
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+public class FastWordTableBenchmark {
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    private FastCompiledTemplate template;
+
+    private List<List<Object>> values;
+
+    private double minInflateRatio;
+
+    @Setup
+    public void setup() throws Exception {
+        minInflateRatio = FastBenchmarkTemplates.relaxInflateRatio();
+        template = FastTemplateCache.get(FastBenchmarkTemplates.wordTable());
+        values = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            values.add(newRow(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        FastBenchmarkTemplates.restoreInflateRatio(minInflateRatio);
+    }
+
+    @Benchmark
+    public int renderValues() throws Exception {
+        return render(new FastWordTableInfo().setTitles(titles()).setValues(values));
+    }
+
+    @Benchmark
+    public int renderIterator() throws Exception {
+        Iterator<List<Object>> iterator = new Iterator<List<Object>>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < rows;
+            }
+
+            @Override
+            public List<Object> next() {
+                return newRow(index++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        return render(new FastWordTableInfo().setTitles(titles()).setValueIterator(iterator));
+    }
+
+    private int render(FastWordTableInfo tableInfo) throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "明细");
+        data.put("total", rows);
+        data.put("table", tableInfo);
+        return FastBenchmarkTemplates.render(data, template, "docx");
+    }
+
+    private static List<String> titles() {
+        return Arrays.asList("序号", "名称", "数量", "备注");
+    }
+
+    private static List<Object> newRow(int index) {
+        return Arrays.<Object>asList(index, "名称" + index, index * 10, "备注" + index);
+    }
+}
@@ -0,0 +1,353 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.core.FastHandler;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.info.FastTemplateMetrics;
+import com.fastchar.template.info.FastWordTableInfo;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 渲染准入控制，由 {@link FastTemplateConfig#isAdmission()} 开启：
+ * 渲染前按模板大小及数据中列表的长度估算占用的内存，所有渲染的估算内存之和超过 {@link FastTemplateConfig#getAdmissionBudget()} 时排队等待，
+ * 列表展开后再按实际的行数及单元格数修正估算值（不阻塞，只影响之后的准入）。
+ * 排队按估算内存分为小、中、大三个队列，优先准入较小的渲染，避免小渲染被大渲染阻塞；排队超过 {@link FastTemplateConfig#getAdmissionAgingTime()} 的渲染优先准入，
+ * 此时其他渲染需等待其准入，避免大渲染一直被插队；估算内存超过预算的渲染按预算计算，即没有其他渲染时仍可执行
+ */
+public class FastTemplateAdmission {
+
+    /**
+     * 估算内存不超过预算的1/16
+     */
+    public static final int SIZE_SMALL = 0;
+
+    /**
+     * 估算内存不超过预算的1/4
+     */
+    public static final int SIZE_MEDIUM = 1;
+
+    /**
+     * 估算内存超过预算的1/4
+     */
+    public static final int SIZE_LARGE = 2;
+
+    /**
+     * 模板解压及解析为POI对象后占用的内存约为模板文件大小的倍数
+     */
+    private static final long TEMPLATE_FACTOR = 20;
+
+    /**
+     * 渲染前按数据估算时每行占用的内存
+     */
+    private static final long ROW_COST = 4 * 1024;
+
+    /**
+     * 列表展开后每个单元格占用的内存
+     */
+    private static final long CELL_COST = 512;
+
+    private static final int MAX_DEPTH = 2;
+
+    private static final Object LOCK = new Object();
+
+    private static final List<LinkedList<Ticket>> QUEUES = new ArrayList<>();
+
+    private static long usedBytes;
+
+    private static int running;
+
+    private static long admittedCount;
+
+    private static long rejectedCount;
+
+    private static long totalWaitNanos;
+
+    private static long maxWaitNanos;
+
+    static {
+        for (int i = SIZE_SMALL; i <= SIZE_LARGE; i++) {
+            QUEUES.add(new LinkedList<Ticket>());
+        }
+    }
+
+    /**
+     * 申请准入，内存预算不足时排队等待，准入后需调用 {@link #release(FastHandler)} 释放
+     *
+     * @param handler          渲染句柄，准入凭证保存在 __admission 中
+     * @param compiledTemplate 已解析的模板
+     * @throws RejectedExecutionException 排队已满或等待超时
+     */
+    public static void acquire(FastHandler handler, FastCompiledTemplate compiledTemplate) throws InterruptedException {
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        long budget = Math.max(templateConfig.getAdmissionBudget(), 1);
+        Ticket ticket = new Ticket();
+        ticket.baseBytes = (long) compiledTemplate.getContent().length * TEMPLATE_FACTOR;
+        ticket.bytes = Math.min(ticket.baseBytes + countRows(handler.get("__data"), 0) * ROW_COST, budget);
+        ticket.sizeClass = getSizeClass(ticket.bytes, budget);
+        ticket.budget = budget;
+
+        long beginTime = System.nanoTime();
+        synchronized (LOCK) {
+            if (getQueueDepth() == 0 && usedBytes + ticket.bytes <= budget) {
+                admit(ticket, 0);
+            } else {
+                if (getQueueDepth() >= templateConfig.getAdmissionQueueSize()) {
+                    rejectedCount++;
+                    throw new RejectedExecutionException("渲染排队已满，请稍后再试！");
+                }
+                ticket.enqueueTime = beginTime;
+                QUEUES.get(ticket.sizeClass).add(ticket);
+                long timeout = templateConfig.getAdmissionTimeout();
+                long agingNanos = templateConfig.getAdmissionAgingTime() * 1000000L;
+                try {
+                    while (true) {
+                        long now = System.nanoTime();
+                        if (next(now, agingNanos) == ticket && usedBytes + ticket.bytes <= budget) {
+                            QUEUES.get(ticket.sizeClass).remove(ticket);
+                            admit(ticket, now - beginTime);
+                            //预算可能还能容纳其他排队的渲染
+                            LOCK.notifyAll();
+                            break;
+                        }
+                        long waitMillis = timeout > 0 ? timeout - (now - beginTime) / 1000000L : 0;
+                        if (timeout > 0 && waitMillis <= 0) {
+                            QUEUES.get(ticket.sizeClass).remove(ticket);
+                            rejectedCount++;
+                            LOCK.notifyAll();
+                            throw new RejectedExecutionException("等待渲染准入超时，请稍后再试！");
+                        }
+                        //排队超过优先时间的渲染需要重新选择，最多等待至优先时间
+                        if (agingNanos > 0 && now - ticket.enqueueTime < agingNanos) {
+                            long agingMillis = (agingNanos - (now - ticket.enqueueTime)) / 1000000L + 1;
+                            waitMillis = waitMillis > 0 ? Math.min(waitMillis, agingMillis) : agingMillis;
+                        }
+                        LOCK.wait(waitMillis);
+                    }
+                } catch (InterruptedException e) {
+                    QUEUES.get(ticket.sizeClass).remove(ticket);
+                    LOCK.notifyAll();
+                    throw e;
+                }
+            }
+        }
+        handler.put("__admission", ticket);
+        FastTemplateMetrics.of(handler).addPhase(FastTemplateMetrics.PHASE_ADMISSION, ticket.waitNanos);
+    }
+
+    /**
+     * 列表展开后按实际的行数及单元格数修正估算内存，不阻塞当前渲染
+     *
+     * @param handler 渲染句柄
+     * @param cells   展开后列表单元格的数量
+     */
+    public static void adjust(FastHandler handler, long cells) {
+        Object value = handler.get("__admission");
+        if (!(value instanceof Ticket)) {
+            return;
+        }
+        Ticket ticket = (Ticket) value;
+        synchronized (LOCK) {
+            if (ticket.released) {
+                return;
+            }
+            long bytes = Math.min(ticket.baseBytes + cells * CELL_COST, ticket.budget);
+            usedBytes += bytes - ticket.bytes;
+            boolean decreased = bytes < ticket.bytes;
+            ticket.bytes = bytes;
+            if (decreased) {
+                LOCK.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 释放准入，未申请准入时忽略
+     *
+     * @param handler 渲染句柄
+     */
+    public static void release(FastHandler handler) {
+        Object value = handler.get("__admission");
+        if (!(value instanceof Ticket)) {
+            return;
+        }
+        handler.put("__admission", null);
+        Ticket ticket = (Ticket) value;
+        synchronized (LOCK) {
+            if (ticket.released) {
+                return;
+            }
+            ticket.released = true;
+            usedBytes -= ticket.bytes;
+            running--;
+            LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * 获取排队等待的渲染数量
+     */
+    public static int getQueueDepth() {
+        synchronized (LOCK) {
+            int depth = 0;
+            for (LinkedList<Ticket> queue : QUEUES) {
+                depth += queue.size();
+            }
+            return depth;
+        }
+    }
+
+    /**
+     * 获取指定大小的排队等待的渲染数量
+     *
+     * @param sizeClass 例如：{@link #SIZE_SMALL}
+     */
+    public static int getQueueDepth(int sizeClass) {
+        synchronized (LOCK) {
+            return QUEUES.get(sizeClass).size();
+        }
+    }
+
+    /**
+     * 获取正在渲染的估算内存之和，单位：字节
+     */
+    public static long getUsedBytes() {
+        synchronized (LOCK) {
+            return usedBytes;
+        }
+    }
+
+    /**
+     * 获取正在渲染的数量
+     */
+    public static int getRunning() {
+        synchronized (LOCK) {
+            return running;
+        }
+    }
+
+    /**
+     * 获取已准入的渲染数量
+     */
+    public static long getAdmittedCount() {
+        synchronized (LOCK) {
+            return admittedCount;
+        }
+    }
+
+    /**
+     * 获取排队已满或等待超时被拒绝的渲染数量
+     */
+    public static long getRejectedCount() {
+        synchronized (LOCK) {
+            return rejectedCount;
+        }
+    }
+
+    /**
+     * 获取已准入渲染的平均等待时间，单位：纳秒，每次渲染的等待时间记录在 {@link FastTemplateMetrics#PHASE_ADMISSION} 中
+     */
+    public static long getAverageWaitNanos() {
+        synchronized (LOCK) {
+            return admittedCount == 0 ? 0 : totalWaitNanos / admittedCount;
+        }
+    }
+
+    /**
+     * 获取已准入渲染的最长等待时间，单位：纳秒
+     */
+    public static long getMaxWaitNanos() {
+        synchronized (LOCK) {
+            return maxWaitNanos;
+        }
+    }
+
+    private static void admit(Ticket ticket, long waitNanos) {
+        ticket.waitNanos = waitNanos;
+        usedBytes += ticket.bytes;
+        running++;
+        admittedCount++;
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+    }
+
+    /**
+     * 选择下一个准入的渲染：排队超过优先时间的渲染中最早排队的，否则为最小队列的队首
+     */
+    private static Ticket next(long now, long agingNanos) {
+        Ticket aged = null;
+        if (agingNanos > 0) {
+            for (LinkedList<Ticket> queue : QUEUES) {
+                Ticket first = queue.peekFirst();
+                if (first != null && now - first.enqueueTime >= agingNanos && (aged == null || first.enqueueTime < aged.enqueueTime)) {
+                    aged = first;
+                }
+            }
+        }
+        if (aged != null) {
+            return aged;
+        }
+        for (LinkedList<Ticket> queue : QUEUES) {
+            if (!queue.isEmpty()) {
+                return queue.peekFirst();
+            }
+        }
+        return null;
+    }
+
+    private static int getSizeClass(long bytes, long budget) {
+        if (bytes <= budget / 16) {
+            return SIZE_SMALL;
+        }
+        if (bytes <= budget / 4) {
+            return SIZE_MEDIUM;
+        }
+        return SIZE_LARGE;
+    }
+
+    /**
+     * 统计数据中列表的总行数，迭代器等按顺序读取的数据源无法预知行数，不统计
+     */
+    private static long countRows(Object value, int depth) {
+        if (value == null || depth > MAX_DEPTH) {
+            return 0;
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        if (value instanceof FastWordTableInfo) {
+            List<List<Object>> values = ((FastWordTableInfo) value).getValues();
+            return values == null ? 0 : values.size();
+        }
+        if (value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive()) {
+            return Array.getLength(value);
+        }
+        if (value instanceof Map) {
+            long rows = 0;
+            for (Object item : ((Map<?, ?>) value).values()) {
+                rows += countRows(item, depth + 1);
+            }
+            return rows;
+        }
+        return 0;
+    }
+
+    /**
+     * 准入凭证
+     */
+    private static final class Ticket {
+        private long baseBytes;
+        private long bytes;
+        private long budget;
+        private int sizeClass;
+        private long enqueueTime;
+        private long waitNanos;
+        private boolean released;
+    }
+}
@@ -0,0 +1,160 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.utils.FastFileUtils;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 已解析模板的缓存，按最近最少使用淘汰，缓存数量由 {@link FastTemplateConfig#getTemplateCacheSize()} 控制
+ */
+public class FastTemplateCache {
+
+    private static final Map<String, FastCompiledTemplate> CACHE = new LinkedHashMap<String, FastCompiledTemplate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FastCompiledTemplate> eldest) {
+            return size() > getCacheSize();
+        }
+    };
+
+    private static int getCacheSize() {
+        return FastChar.getConfig(FastTemplateConfig.class).getTemplateCacheSize();
+    }
+
+    /**
+     * 获取本地模板文件的解析模板，以文件路径、修改时间及文件大小作为缓存标识，文件未修改时不会重复读取
+     *
+     * @param templateFile 模板文件
+     * @return 解析模板
+     */
+    public static FastCompiledTemplate get(File templateFile) throws IOException {
+        String key = templateFile.getAbsolutePath() + "@" + templateFile.lastModified() + ":" + templateFile.length();
+        FastCompiledTemplate compiledTemplate = getCache(key);
+        if (compiledTemplate != null) {
+            return compiledTemplate;
+        }
+        InputStream inputStream = new FileInputStream(templateFile);
+        try {
+            return putCache(new FastCompiledTemplate(key, readBytes(inputStream)));
+        } finally {
+            FastFileUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * 获取模板输入流的解析模板，以模板内容的摘要作为缓存标识
+     *
+     * @param templateInputStream 模板输入流，读取完毕后将关闭
+     * @return 解析模板
+     */
+    public static FastCompiledTemplate get(InputStream templateInputStream) throws IOException {
+        try {
+            return get(readBytes(templateInputStream));
+        } finally {
+            FastFileUtils.closeQuietly(templateInputStream);
+        }
+    }
+
+    /**
+     * 获取模板内容的解析模板，以模板内容的摘要作为缓存标识
+     *
+     * @param content 模板内容
+     * @return 解析模板
+     */
+    public static FastCompiledTemplate get(byte[] content) {
+        String key = "md5:" + digest(content);
+        FastCompiledTemplate compiledTemplate = getCache(key);
+        if (compiledTemplate != null) {
+            return compiledTemplate;
+        }
+        return putCache(new FastCompiledTemplate(key, content));
+    }
+
+    /**
+     * 获取指定标识的解析模板
+     *
+     * @param key 缓存标识
+     * @return 解析模板，未缓存时返回null
+     */
+    public static FastCompiledTemplate get(String key) {
+        return getCache(key);
+    }
+
+    /**
+     * 缓存模板内容，标识已存在时返回已缓存的解析模板
+     *
+     * @param key     缓存标识
+     * @param content 模板内容
+     * @return 解析模板
+     */
+    public static FastCompiledTemplate put(String key, byte[] content) {
+        return putCache(new FastCompiledTemplate(key, content));
+    }
+
+    /**
+     * 移除指定标识的解析模板
+     *
+     * @param key 缓存标识
+     */
+    public static void remove(String key) {
+        synchronized (CACHE) {
+            CACHE.remove(key);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static FastCompiledTemplate getCache(String key) {
+        if (getCacheSize() <= 0) {
+            return null;
+        }
+        synchronized (CACHE) {
+            return CACHE.get(key);
+        }
+    }
+
+    private static FastCompiledTemplate putCache(FastCompiledTemplate compiledTemplate) {
+        if (getCacheSize() <= 0) {
+            return compiledTemplate;
+        }
+        synchronized (CACHE) {
+            FastCompiledTemplate exist = CACHE.get(compiledTemplate.getKey());
+            if (exist != null) {
+                return exist;
+            }
+            CACHE.put(compiledTemplate.getKey(), compiledTemplate);
+        }
+        return compiledTemplate;
+    }
+
+    static byte[] readBytes(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(inputStream.available(), 8192));
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, length);
+        }
+        return outputStream.toByteArray();
+    }
+
+    static String digest(byte[] content) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            return new BigInteger(1, messageDigest.digest(content)).toString(16);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.fastchar.template;
 
 import com.fastchar.interfaces.IFastConfig;
 
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
 /**
  * @author 沈建（Janesen）
  * @date 2021/12/6 16:30
@@ -10,6 +13,60 @@ public class FastTemplateConfig implements IFastConfig {
 
     private boolean debug;
 
+    private boolean excelStreaming;
+
+    private int excelStreamingWindow = 100;
+
+    private int excelSplitRows;
+
+    private int templateCacheSize = 32;
+
+    private long passthroughMinSize = 1024 * 1024L;
+
+    private boolean excelParallelSheets;
+
+    private int excelParallelThreads = Runtime.getRuntime().availableProcessors();
+
+    private boolean excelTypedValue = true;
+
+    private int batchThreads = Runtime.getRuntime().availableProcessors();
+
+    private long templateFetchTtl = 60 * 1000L;
+
+    private long templateFetchMaxSize = 64 * 1024 * 1024L;
+
+    private String templateFetchDiskDir;
+
+    private int asyncThreads = Runtime.getRuntime().availableProcessors();
+
+    private int asyncQueueSize = 256;
+
+    private RejectedExecutionHandler asyncRejectedHandler = new ThreadPoolExecutor.AbortPolicy();
+
+    private boolean asyncVirtualThreads;
+
+    private boolean outputCache;
+
+    private long outputCacheTtl = 10 * 60 * 1000L;
+
+    private long outputCacheMaxSize = 32 * 1024 * 1024L;
+
+    private String outputCacheDiskDir;
+
+    private long outputCacheDiskMaxSize = 256 * 1024 * 1024L;
+
+    private int pdfConcurrency = Runtime.getRuntime().availableProcessors();
+
+    private boolean admission;
+
+    private long admissionBudget = Runtime.getRuntime().maxMemory() / 2;
+
+    private int admissionQueueSize = 256;
+
+    private long admissionTimeout = 60 * 1000L;
+
+    private long admissionAgingTime = 10 * 1000L;
+
     public boolean isDebug() {
         return debug;
     }
@@ -18,4 +75,419 @@ public class FastTemplateConfig implements IFastConfig {
         this.debug = debug;
         return this;
     }
+
+    public boolean isExcelStreaming() {
+        return excelStreaming;
+    }
+
+    /**
+     * 设置Excel列表模板是否使用流式渲染，开启后列表行将通过SXSSFWorkbook按窗口写出，内存占用不随行数增长，仅支持xlsx格式
+     *
+     * @param excelStreaming 是否开启
+     * @return 当前对象
+     */
+    public FastTemplateConfig setExcelStreaming(boolean excelStreaming) {
+        this.excelStreaming = excelStreaming;
+        return this;
+    }
+
+    public int getExcelStreamingWindow() {
+        return excelStreamingWindow;
+    }
+
+    /**
+     * 设置Excel流式渲染时内存中保留的行数，超出的行将写入临时文件
+     *
+     * @param excelStreamingWindow 行数
+     * @return 当前对象
+     */
+    public FastTemplateConfig setExcelStreamingWindow(int excelStreamingWindow) {
+        this.excelStreamingWindow = excelStreamingWindow;
+        return this;
+    }
+
+    public int getExcelSplitRows() {
+        return excelSplitRows;
+    }
+
+    /**
+     * 设置Excel流式渲染时每个工作表最多写入的行数（不含重复的表头行），超出后拆分到新的工作表，
+     * 输出文件名为zip时拆分为多个xlsx文件；小于等于0时仅在超出工作表最大行数时拆分
+     *
+     * @param excelSplitRows 行数
+     * @return 当前对象
+     */
+    public FastTemplateConfig setExcelSplitRows(int excelSplitRows) {
+        this.excelSplitRows = excelSplitRows;
+        return this;
+    }
+
+    public int getTemplateCacheSize() {
+        return templateCacheSize;
+    }
+
+    /**
+     * 设置已解析模板的最大缓存数量，超出后按最近最少使用淘汰，小于等于0时不缓存
+     *
+     * @param templateCacheSize 缓存数量
+     * @return 当前对象
+     */
+    public FastTemplateConfig setTemplateCacheSize(int templateCacheSize) {
+        this.templateCacheSize = templateCacheSize;
+        return this;
+    }
+
+    public long getPassthroughMinSize() {
+        return passthroughMinSize;
+    }
+
+    /**
+     * 设置xlsx、docx模板中图片、嵌入对象等二进制部件直通输出的最小总大小（压缩后），达到该值时渲染结果先写入临时文件，
+     * 再与原模板中的二进制部件合并输出，避免重新压缩；未达到时直接输出，单位：字节
+     *
+     * @param passthroughMinSize 最小总大小
+     * @return 当前对象
+     */
+    public FastTemplateConfig setPassthroughMinSize(long passthroughMinSize) {
+        this.passthroughMinSize = passthroughMinSize;
+        return this;
+    }
+
+    public boolean isExcelParallelSheets() {
+        return excelParallelSheets;
+    }
+
+    /**
+     * 设置Excel多个工作表是否并行解析变量值，解析完成后再按顺序写入工作簿，输出结果与顺序渲染一致，适用于变量取值耗时
+     * （例如 IFastTemplateData 查询数据库）的多工作表模板。开启后变量在多个线程中同时取值，IFastTemplateData 的实现、
+     * 渲染句柄 FastHandler 中注入到变量方法的对象及 Iterator、IFastTemplateRows 之外的自定义列表数据需保证线程安全
+     *
+     * @param excelParallelSheets 是否开启
+     * @return 当前对象
+     */
+    public FastTemplateConfig setExcelParallelSheets(boolean excelParallelSheets) {
+        this.excelParallelSheets = excelParallelSheets;
+        return this;
+    }
+
+    public int getExcelParallelThreads() {
+        return excelParallelThreads;
+    }
+
+    /**
+     * 设置Excel工作表并行解析的线程数，默认为CPU核数，线程池创建后修改无效
+     *
+     * @param excelParallelThreads 线程数
+     * @return 当前对象
+     */
+    public FastTemplateConfig setExcelParallelThreads(int excelParallelThreads) {
+        this.excelParallelThreads = excelParallelThreads;
+        return this;
+    }
+
+    public boolean isExcelTypedValue() {
+        return excelTypedValue;
+    }
+
+    /**
+     * 设置Excel单元格只包含一个变量时是否按值的类型写入，数字、日期、布尔值将写为对应类型的单元格并保留模板的数字格式，
+     * 关闭后所有变量值均转换为文本写入，默认：true
+     *
+     * @param excelTypedValue 是否开启
+     * @return 当前对象
+     */
+    public FastTemplateConfig setExcelTypedValue(boolean excelTypedValue) {
+        this.excelTypedValue = excelTypedValue;
+        return this;
+    }
+
+    public int getBatchThreads() {
+        return batchThreads;
+    }
+
+    /**
+     * 设置批量渲染的线程数，默认为CPU核数，线程池创建后修改无效
+     *
+     * @param batchThreads 线程数
+     * @return 当前对象
+     */
+    public FastTemplateConfig setBatchThreads(int batchThreads) {
+        this.batchThreads = batchThreads;
+        return this;
+    }
+
+    public long getTemplateFetchTtl() {
+        return templateFetchTtl;
+    }
+
+    /**
+     * 设置网络模板缓存的有效期，有效期内不再请求服务器，过期后使用 ETag、Last-Modified 向服务器校验，单位：毫秒
+     *
+     * @param templateFetchTtl 有效期
+     * @return 当前对象
+     */
+    public FastTemplateConfig setTemplateFetchTtl(long templateFetchTtl) {
+        this.templateFetchTtl = templateFetchTtl;
+        return this;
+    }
+
+    public long getTemplateFetchMaxSize() {
+        return templateFetchMaxSize;
+    }
+
+    /**
+     * 设置网络模板缓存占用内存的上限，包括缓存的解析模板（与下载缓存共用模板内容），超出后最近最少使用的模板写入磁盘或移除，单位：字节
+     *
+     * @param templateFetchMaxSize 内存上限
+     * @return 当前对象
+     */
+    public FastTemplateConfig setTemplateFetchMaxSize(long templateFetchMaxSize) {
+        this.templateFetchMaxSize = templateFetchMaxSize;
+        return this;
+    }
+
+    public String getTemplateFetchDiskDir() {
+        return templateFetchDiskDir;
+    }
+
+    /**
+     * 设置网络模板缓存的磁盘目录，设置后超出内存上限的模板将写入该目录，否则直接移除
+     *
+     * @param templateFetchDiskDir 磁盘目录
+     * @return 当前对象
+     */
+    public FastTemplateConfig setTemplateFetchDiskDir(String templateFetchDiskDir) {
+        this.templateFetchDiskDir = templateFetchDiskDir;
+        return this;
+    }
+
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    /**
+     * 设置异步渲染的线程数，默认为CPU核数，线程池创建后修改无效
+     *
+     * @param asyncThreads 线程数
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+        return this;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    /**
+     * 设置异步渲染等待队列的长度，默认：256，线程全部繁忙且队列已满时由 {@link #getAsyncRejectedHandler()} 处理，线程池创建后修改无效
+     *
+     * @param asyncQueueSize 队列长度，小于等于0时不排队
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+        return this;
+    }
+
+    public RejectedExecutionHandler getAsyncRejectedHandler() {
+        return asyncRejectedHandler;
+    }
+
+    /**
+     * 设置异步渲染队列已满时的拒绝策略，默认：{@link ThreadPoolExecutor.AbortPolicy}，异步方法返回以 RejectedExecutionException 结束的结果；
+     * 使用 {@link ThreadPoolExecutor.CallerRunsPolicy} 时由提交任务的线程直接渲染，线程池创建后修改无效
+     *
+     * @param asyncRejectedHandler 拒绝策略
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAsyncRejectedHandler(RejectedExecutionHandler asyncRejectedHandler) {
+        this.asyncRejectedHandler = asyncRejectedHandler;
+        return this;
+    }
+
+    public boolean isAsyncVirtualThreads() {
+        return asyncVirtualThreads;
+    }
+
+    /**
+     * 设置异步渲染是否使用虚拟线程，仅在支持虚拟线程的运行环境（Java 21及以上）中生效，否则仍使用普通线程，
+     * 线程数及队列限制不变，线程池创建后修改无效
+     *
+     * @param asyncVirtualThreads 是否使用虚拟线程
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAsyncVirtualThreads(boolean asyncVirtualThreads) {
+        this.asyncVirtualThreads = asyncVirtualThreads;
+        return this;
+    }
+
+    public boolean isOutputCache() {
+        return outputCache;
+    }
+
+    /**
+     * 设置是否缓存渲染结果，开启后相同模板、相同输出类型、相同Excel输出配置及相同数据（__data）的渲染直接输出缓存内容。
+     * 缓存标识只包含 __data 的摘要，因此数据中包含无法计算摘要的值（例如 Iterator、IFastTemplateRows、自定义对象）时不缓存，
+     * 渲染过程中有变量取自 handler、FastMapWrap 方法变量或 IFastTemplateData 时也不缓存
+     *
+     * @param outputCache 是否缓存
+     * @return 当前对象
+     */
+    public FastTemplateConfig setOutputCache(boolean outputCache) {
+        this.outputCache = outputCache;
+        return this;
+    }
+
+    public long getOutputCacheTtl() {
+        return outputCacheTtl;
+    }
+
+    /**
+     * 设置渲染结果缓存的有效期，默认：10分钟，单位：毫秒
+     *
+     * @param outputCacheTtl 有效期
+     * @return 当前对象
+     */
+    public FastTemplateConfig setOutputCacheTtl(long outputCacheTtl) {
+        this.outputCacheTtl = outputCacheTtl;
+        return this;
+    }
+
+    public long getOutputCacheMaxSize() {
+        return outputCacheMaxSize;
+    }
+
+    /**
+     * 设置渲染结果缓存占用内存的上限，默认：32M，超过上限的单个渲染结果不缓存，单位：字节
+     *
+     * @param outputCacheMaxSize 内存上限
+     * @return 当前对象
+     */
+    public FastTemplateConfig setOutputCacheMaxSize(long outputCacheMaxSize) {
+        this.outputCacheMaxSize = outputCacheMaxSize;
+        return this;
+    }
+
+    public String getOutputCacheDiskDir() {
+        return outputCacheDiskDir;
+    }
+
+    /**
+     * 设置渲染结果缓存的磁盘目录，设置后超出内存上限的渲染结果将写入该目录，否则直接移除
+     *
+     * @param outputCacheDiskDir 磁盘目录
+     * @return 当前对象
+     */
+    public FastTemplateConfig setOutputCacheDiskDir(String outputCacheDiskDir) {
+        this.outputCacheDiskDir = outputCacheDiskDir;
+        return this;
+    }
+
+    public long getOutputCacheDiskMaxSize() {
+        return outputCacheDiskMaxSize;
+    }
+
+    /**
+     * 设置渲染结果缓存占用磁盘的上限，默认：256M，单位：字节
+     *
+     * @param outputCacheDiskMaxSize 磁盘上限
+     * @return 当前对象
+     */
+    public FastTemplateConfig setOutputCacheDiskMaxSize(long outputCacheDiskMaxSize) {
+        this.outputCacheDiskMaxSize = outputCacheDiskMaxSize;
+        return this;
+    }
+
+    public int getPdfConcurrency() {
+        return pdfConcurrency;
+    }
+
+    /**
+     * 设置Word模板输出PDF时同时转换的最大数量，默认为CPU核数，超出时等待其他转换完成，首次转换后修改无效
+     *
+     * @param pdfConcurrency 数量
+     * @return 当前对象
+     */
+    public FastTemplateConfig setPdfConcurrency(int pdfConcurrency) {
+        this.pdfConcurrency = pdfConcurrency;
+        return this;
+    }
+
+    public boolean isAdmission() {
+        return admission;
+    }
+
+    /**
+     * 设置是否开启渲染准入控制，开启后按模板大小及列表行数估算每次渲染占用的内存，
+     * 所有渲染的估算内存之和超过 {@link #getAdmissionBudget()} 时排队等待，详见 {@link FastTemplateAdmission}
+     *
+     * @param admission 是否开启
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAdmission(boolean admission) {
+        this.admission = admission;
+        return this;
+    }
+
+    public long getAdmissionBudget() {
+        return admissionBudget;
+    }
+
+    /**
+     * 设置同时渲染的内存预算，默认：最大堆内存的一半，单位：字节
+     *
+     * @param admissionBudget 内存预算
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAdmissionBudget(long admissionBudget) {
+        this.admissionBudget = admissionBudget;
+        return this;
+    }
+
+    public int getAdmissionQueueSize() {
+        return admissionQueueSize;
+    }
+
+    /**
+     * 设置等待准入的最大渲染数量，超出时直接拒绝并抛出 RejectedExecutionException，默认：256
+     *
+     * @param admissionQueueSize 队列长度
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAdmissionQueueSize(int admissionQueueSize) {
+        this.admissionQueueSize = admissionQueueSize;
+        return this;
+    }
+
+    public long getAdmissionTimeout() {
+        return admissionTimeout;
+    }
+
+    /**
+     * 设置等待准入的最长时间，超时后拒绝并抛出 RejectedExecutionException，小于等于0时一直等待，默认：60秒，单位：毫秒
+     *
+     * @param admissionTimeout 等待时间
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAdmissionTimeout(long admissionTimeout) {
+        this.admissionTimeout = admissionTimeout;
+        return this;
+    }
+
+    public long getAdmissionAgingTime() {
+        return admissionAgingTime;
+    }
+
+    /**
+     * 设置排队的渲染等待超过该时间后优先准入，避免大渲染一直被小渲染插队，默认：10秒，单位：毫秒
+     *
+     * @param admissionAgingTime 等待时间
+     * @return 当前对象
+     */
+    public FastTemplateConfig setAdmissionAgingTime(long admissionAgingTime) {
+        this.admissionAgingTime = admissionAgingTime;
+        return this;
+    }
 }
@@ -0,0 +1,225 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.core.FastHandler;
+import com.fastchar.core.FastMapWrap;
+import com.fastchar.template.info.FastTemplateKeyPath;
+import com.fastchar.template.info.FastTemplateMetrics;
+import com.fastchar.template.info.FastTemplateRows;
+import com.fastchar.template.interfaces.IFastTemplateData;
+import com.fastchar.template.interfaces.IFastTemplateRows;
+import com.fastchar.utils.FastNumberUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单次渲染的变量解析上下文，保存包装后的数据及数据提供者，并缓存不含列表下标的变量值（例如：list.length），
+ * 值为 Iterator 或 {@link IFastTemplateRows} 的列表变量将包装为 {@link FastTemplateRows} 按顺序读取
+ */
+public class FastTemplateContext {
+    private static final Object NULL_VALUE = new Object();
+
+    /**
+     * 获取渲染句柄中的解析上下文，不存在或数据已变更时将创建新的上下文
+     *
+     * @param handler 渲染句柄
+     * @return 解析上下文
+     */
+    public static FastTemplateContext of(FastHandler handler) {
+        Object context = handler.get("__context");
+        if (context instanceof FastTemplateContext && ((FastTemplateContext) context).data == handler.get("__data")) {
+            return (FastTemplateContext) context;
+        }
+        FastTemplateContext templateContext = new FastTemplateContext(handler);
+        handler.put("__context", templateContext);
+        return templateContext;
+    }
+
+    private final FastHandler handler;
+    private final Object data;
+    private final FastTemplateMetrics metrics;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private volatile FastMapWrap mapWrap;
+    private volatile List<IFastTemplateData> templateDataList;
+    private final List<FastTemplateRows> rowsList = new ArrayList<>();
+    private volatile boolean dataOnly = true;
+
+    public FastTemplateContext(FastHandler handler) {
+        this.handler = handler;
+        this.data = handler.get("__data");
+        this.metrics = FastTemplateMetrics.of(handler);
+    }
+
+    public FastHandler getHandler() {
+        return handler;
+    }
+
+    /**
+     * 当前渲染的统计信息
+     */
+    public FastTemplateMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 获取变量值
+     *
+     * @param key 变量标识符
+     * @return 值
+     */
+    public Object getData(String key) {
+        Object value = values.get(key);
+        if (value != null) {
+            return value == NULL_VALUE ? null : value;
+        }
+        return cacheValue(key, resolve(FastTemplateKeyPath.compile(key), -1));
+    }
+
+    /**
+     * 按预编译的变量路径获取变量值
+     *
+     * @param keyPath   变量路径
+     * @param listIndex 列表下标，用于替换路径中的 [i]
+     * @return 值
+     */
+    public Object getData(FastTemplateKeyPath keyPath, int listIndex) {
+        if (keyPath.isList()) {
+            return resolve(keyPath, listIndex);
+        }
+        Object value = values.get(keyPath.getKey());
+        if (value != null) {
+            return value == NULL_VALUE ? null : value;
+        }
+        return cacheValue(keyPath.getKey(), resolve(keyPath, -1));
+    }
+
+    /**
+     * 获取列表的长度
+     *
+     * @param listKey 列表变量标识符
+     * @return 列表长度，列表为按顺序读取的行数据源时返回-1
+     */
+    public int getListSize(String listKey) {
+        Object list = getData(listKey);
+        if (list instanceof FastTemplateRows && !((FastTemplateRows) list).isLoaded()) {
+            return -1;
+        }
+        return FastNumberUtils.formatToInt(getData(listKey + ".length"));
+    }
+
+    /**
+     * 列表是否存在指定下标的行，列表为按顺序读取的行数据源时将读取至该行
+     *
+     * @param listKey  列表变量标识符
+     * @param rowIndex 行下标
+     * @return 是否存在
+     */
+    public boolean hasListRow(String listKey, int rowIndex) {
+        Object list = getData(listKey);
+        if (list instanceof FastTemplateRows) {
+            return ((FastTemplateRows) list).has(rowIndex);
+        }
+        return rowIndex < getListSize(listKey);
+    }
+
+    /**
+     * 已获取的变量值是否都直接取自 __data，变量经过 FastMapWrap 解析（例如注入了 handler 的方法变量）或由 IFastTemplateData 提供时返回false
+     */
+    public boolean isDataOnly() {
+        return dataOnly;
+    }
+
+    /**
+     * 关闭渲染过程中打开的行数据源
+     */
+    public void close() {
+        synchronized (rowsList) {
+            for (FastTemplateRows rows : rowsList) {
+                rows.close();
+            }
+            rowsList.clear();
+        }
+    }
+
+    private Object cacheValue(String key, Object value) {
+        if (value instanceof Iterator || value instanceof IFastTemplateRows) {
+            //行数据源只能读取一次，同一变量共用一个包装
+            FastTemplateRows rows = value instanceof Iterator ? new FastTemplateRows((Iterator<?>) value) : new FastTemplateRows((IFastTemplateRows) value);
+            Object exists = values.putIfAbsent(key, rows);
+            if (exists != null) {
+                return exists == NULL_VALUE ? null : exists;
+            }
+            synchronized (rowsList) {
+                rowsList.add(rows);
+            }
+            return rows;
+        }
+        //含有下标的变量通常只会获取一次，不做缓存，避免大列表时缓存过大
+        if (key.indexOf('[') < 0) {
+            values.put(key, value == null ? NULL_VALUE : value);
+        }
+        return value;
+    }
+
+    private Object resolve(FastTemplateKeyPath keyPath, int listIndex) {
+        //列表变量先获取列表本身（已缓存），再从列表开始取值
+        if (listIndex >= 0 && keyPath.getListKey() != null) {
+            Object list = getData(keyPath.getListKey());
+            if (list != null) {
+                Object value = keyPath.resolveList(list, listIndex);
+                if ((value != null && value != FastTemplateKeyPath.UNRESOLVED) || list instanceof FastTemplateRows) {
+                    return value == FastTemplateKeyPath.UNRESOLVED ? null : value;
+                }
+            }
+        }
+        if (listIndex < 0 && keyPath.getKey().endsWith(".length")) {
+            Object list = getData(keyPath.getKey().substring(0, keyPath.getKey().length() - ".length".length()));
+            if (list instanceof FastTemplateRows) {
+                return ((FastTemplateRows) list).size();
+            }
+        }
+        if (data instanceof Map) {
+            Object value = keyPath.resolve(data, listIndex);
+            if (value == FastTemplateKeyPath.UNRESOLVED) {
+                dataOnly = false;
+                value = getMapWrap().get("${" + keyPath.getKey(listIndex) + "}");
+            }
+            if (value != null) {
+                return value;
+            }
+        }
+        List<IFastTemplateData> templateDataList = getTemplateDataList();
+        if (templateDataList.isEmpty()) {
+            return null;
+        }
+        dataOnly = false;
+        String key = keyPath.getKey(listIndex);
+        for (IFastTemplateData iFastTemplateDatum : templateDataList) {
+            long beginTime = System.nanoTime();
+            Object value = iFastTemplateDatum.getData(handler, key);
+            metrics.addDataLookup(System.nanoTime() - beginTime);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private FastMapWrap getMapWrap() {
+        if (mapWrap == null) {
+            mapWrap = FastMapWrap.newInstance((Map<?, ?>) data);
+        }
+        return mapWrap;
+    }
+
+    private List<IFastTemplateData> getTemplateDataList() {
+        if (templateDataList == null) {
+            templateDataList = FastChar.getOverrides().newInstances(false, IFastTemplateData.class);
+        }
+        return templateDataList;
+    }
+}
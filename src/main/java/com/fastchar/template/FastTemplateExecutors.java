@@ -0,0 +1,117 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模板渲染使用的线程池，首次使用时按 {@link FastTemplateConfig} 的配置创建
+ */
+public class FastTemplateExecutors {
+
+    private static volatile ExecutorService sheetExecutor;
+
+    private static volatile ExecutorService batchExecutor;
+
+    private static volatile ExecutorService asyncExecutor;
+
+    /**
+     * 获取Excel多工作表并行解析使用的线程池，线程数由 {@link FastTemplateConfig#getExcelParallelThreads()} 控制
+     *
+     * @return 线程池
+     */
+    public static ExecutorService getSheetExecutor() {
+        if (sheetExecutor == null) {
+            synchronized (FastTemplateExecutors.class) {
+                if (sheetExecutor == null) {
+                    int threads = Math.max(FastChar.getConfig(FastTemplateConfig.class).getExcelParallelThreads(), 1);
+                    sheetExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), newThreadFactory("fast-template-sheet"));
+                }
+            }
+        }
+        return sheetExecutor;
+    }
+
+    /**
+     * 获取批量渲染使用的线程池，线程数由 {@link FastTemplateConfig#getBatchThreads()} 控制
+     *
+     * @return 线程池
+     */
+    public static ExecutorService getBatchExecutor() {
+        if (batchExecutor == null) {
+            synchronized (FastTemplateExecutors.class) {
+                if (batchExecutor == null) {
+                    int threads = Math.max(FastChar.getConfig(FastTemplateConfig.class).getBatchThreads(), 1);
+                    batchExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), newThreadFactory("fast-template-batch"));
+                }
+            }
+        }
+        return batchExecutor;
+    }
+
+    /**
+     * 获取异步渲染使用的线程池，线程数、队列长度及拒绝策略由 {@link FastTemplateConfig} 中 async 开头的配置控制
+     *
+     * @return 线程池
+     */
+    public static ExecutorService getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            synchronized (FastTemplateExecutors.class) {
+                if (asyncExecutor == null) {
+                    FastTemplateConfig config = FastChar.getConfig(FastTemplateConfig.class);
+                    int threads = Math.max(config.getAsyncThreads(), 1);
+                    BlockingQueue<Runnable> queue;
+                    if (config.getAsyncQueueSize() > 0) {
+                        queue = new ArrayBlockingQueue<>(config.getAsyncQueueSize());
+                    } else {
+                        queue = new SynchronousQueue<>();
+                    }
+                    ThreadFactory threadFactory = null;
+                    if (config.isAsyncVirtualThreads()) {
+                        threadFactory = newVirtualThreadFactory("fast-template-async");
+                    }
+                    if (threadFactory == null) {
+                        threadFactory = newThreadFactory("fast-template-async");
+                    }
+                    RejectedExecutionHandler rejectedHandler = config.getAsyncRejectedHandler();
+                    if (rejectedHandler == null) {
+                        rejectedHandler = new ThreadPoolExecutor.AbortPolicy();
+                    }
+                    asyncExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                            queue, threadFactory, rejectedHandler);
+                }
+            }
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * 通过反射创建虚拟线程工厂，运行环境不支持虚拟线程时返回null
+     */
+    static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static ThreadFactory newThreadFactory(final String namePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
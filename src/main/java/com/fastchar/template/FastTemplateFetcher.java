@@ -0,0 +1,309 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.utils.FastFileUtils;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 网络模板的下载缓存，在有效期内直接使用本地缓存，过期后携带 ETag、Last-Modified 向服务器校验，
+ * 同一地址并发请求时只会下载一次。缓存占用内存超过上限时，最近最少使用的模板将写入磁盘或被移除，
+ * 其解析模板同时从 {@link FastTemplateCache} 中移除，解析模板与本缓存共用模板内容，网络模板占用的内存不超过 {@link FastTemplateConfig#getTemplateFetchMaxSize()}
+ */
+public class FastTemplateFetcher {
+
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final ConcurrentHashMap<String, FutureTask<Entry>> LOADING = new ConcurrentHashMap<>();
+
+    private static long memorySize;
+
+    /**
+     * 获取网络模板的解析模板
+     *
+     * @param url 模板地址
+     * @return 解析模板
+     */
+    public static FastCompiledTemplate compile(String url) throws Exception {
+        while (true) {
+            Entry entry = fetch(url);
+            //在锁内读取内容并缓存解析模板，避免读取前被其他线程淘汰
+            synchronized (ENTRIES) {
+                if (entry.released) {
+                    continue;
+                }
+                FastCompiledTemplate compiledTemplate = FastTemplateCache.get(entry.getKey());
+                if (compiledTemplate != null) {
+                    return compiledTemplate;
+                }
+                if (entry.content == null) {
+                    //已写入磁盘的模板重新载入内存，与解析模板共用
+                    entry.content = entry.readFile();
+                    entry.deleteFile();
+                    memorySize += entry.size;
+                    evict(entry);
+                }
+                return FastTemplateCache.put(entry.getKey(), entry.content);
+            }
+        }
+    }
+
+    /**
+     * 获取网络模板的内容
+     *
+     * @param url 模板地址
+     * @return 模板内容
+     */
+    public static byte[] getContent(String url) throws Exception {
+        while (true) {
+            Entry entry = fetch(url);
+            synchronized (ENTRIES) {
+                if (entry.released) {
+                    continue;
+                }
+                return entry.content != null ? entry.content : entry.readFile();
+            }
+        }
+    }
+
+    /**
+     * 移除指定地址的缓存
+     *
+     * @param url 模板地址
+     */
+    public static void remove(String url) {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.remove(url);
+            if (entry != null) {
+                FastTemplateCache.remove(entry.getKey());
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        synchronized (ENTRIES) {
+            for (Entry entry : ENTRIES.values()) {
+                FastTemplateCache.remove(entry.getKey());
+                release(entry);
+            }
+            ENTRIES.clear();
+        }
+    }
+
+    /**
+     * 获取有效期内的缓存，过期或未缓存时下载，返回的缓存可能在使用前被其他线程淘汰，须在锁内检查 {@link Entry#released}
+     */
+    private static Entry fetch(final String url) throws Exception {
+        final Entry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(url);
+        }
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        if (entry != null && System.currentTimeMillis() - entry.checkTime < templateConfig.getTemplateFetchTtl()) {
+            return entry;
+        }
+
+        FutureTask<Entry> task = new FutureTask<>(new Callable<Entry>() {
+            @Override
+            public Entry call() throws Exception {
+                return load(url, entry);
+            }
+        });
+        FutureTask<Entry> loadingTask = LOADING.putIfAbsent(url, task);
+        if (loadingTask == null) {
+            loadingTask = task;
+            try {
+                task.run();
+            } finally {
+                LOADING.remove(url, task);
+            }
+        }
+        try {
+            return loadingTask.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Entry load(String url, Entry oldEntry) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(30000);
+        connection.setReadTimeout(30000);
+        if (oldEntry != null) {
+            if (oldEntry.etag != null) {
+                connection.setRequestProperty("If-None-Match", oldEntry.etag);
+            }
+            if (oldEntry.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", oldEntry.lastModified);
+            }
+        }
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && oldEntry != null) {
+                synchronized (ENTRIES) {
+                    if (!oldEntry.released) {
+                        oldEntry.checkTime = System.currentTimeMillis();
+                        return oldEntry;
+                    }
+                }
+                //校验期间缓存已被淘汰，重新下载
+                return load(url, null);
+            }
+            if (responseCode >= 400) {
+                throw new IOException("模板下载失败！" + responseCode + "：" + url);
+            }
+            InputStream inputStream = connection.getInputStream();
+            Entry entry = new Entry();
+            try {
+                entry.content = FastTemplateCache.readBytes(inputStream);
+            } finally {
+                FastFileUtils.closeQuietly(inputStream);
+            }
+            entry.url = url;
+            entry.size = entry.content.length;
+            entry.etag = connection.getHeaderField("ETag");
+            entry.lastModified = connection.getHeaderField("Last-Modified");
+            if (entry.etag != null) {
+                entry.version = entry.etag;
+            } else if (entry.lastModified != null) {
+                entry.version = entry.lastModified;
+            } else {
+                entry.version = FastTemplateCache.digest(entry.content);
+            }
+            entry.checkTime = System.currentTimeMillis();
+            putEntry(entry);
+            return entry;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void putEntry(Entry entry) {
+        synchronized (ENTRIES) {
+            Entry oldEntry = ENTRIES.put(entry.url, entry);
+            if (oldEntry != null) {
+                if (!oldEntry.version.equals(entry.version)) {
+                    FastTemplateCache.remove(oldEntry.getKey());
+                }
+                release(oldEntry);
+            }
+            memorySize += entry.size;
+            evict(entry);
+        }
+    }
+
+    /**
+     * 内存超出上限时，将最近最少使用的模板写入磁盘或移除，并移除其解析模板，须在锁内调用
+     *
+     * @param keep 不淘汰的模板
+     */
+    private static void evict(Entry keep) {
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        Iterator<Entry> iterator = ENTRIES.values().iterator();
+        while (memorySize > templateConfig.getTemplateFetchMaxSize() && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (eldest == keep || eldest.content == null) {
+                continue;
+            }
+            FastTemplateCache.remove(eldest.getKey());
+            if (!spill(eldest, templateConfig.getTemplateFetchDiskDir())) {
+                iterator.remove();
+                release(eldest);
+            }
+        }
+    }
+
+    /**
+     * 将模板内容写入磁盘，释放内存
+     */
+    private static boolean spill(Entry entry, String diskDir) {
+        if (diskDir == null) {
+            return false;
+        }
+        try {
+            File dir = new File(diskDir);
+            if (!dir.exists() && !dir.mkdirs()) {
+                return false;
+            }
+            File file = new File(dir, FastTemplateCache.digest(entry.getKey().getBytes("UTF-8")) + ".template");
+            OutputStream outputStream = new FileOutputStream(file);
+            try {
+                outputStream.write(entry.content);
+            } finally {
+                FastFileUtils.closeQuietly(outputStream);
+            }
+            entry.file = file;
+            entry.content = null;
+            memorySize -= entry.size;
+            return true;
+        } catch (Exception e) {
+            FastChar.getLogger().error(FastTemplateFetcher.class, e);
+            return false;
+        }
+    }
+
+    private static void release(Entry entry) {
+        if (entry.content != null) {
+            memorySize -= entry.size;
+            entry.content = null;
+        }
+        entry.deleteFile();
+        entry.checkTime = 0;
+        entry.released = true;
+    }
+
+    /**
+     * 模板缓存，内容、磁盘文件及 released 只在锁内修改和读取
+     */
+    private static class Entry {
+        private String url;
+        private String etag;
+        private String lastModified;
+        private String version;
+        private long size;
+        private byte[] content;
+        private File file;
+        private boolean released;
+        private volatile long checkTime;
+
+        /**
+         * 解析模板的缓存标识
+         */
+        private String getKey() {
+            return url + "#" + version;
+        }
+
+        private byte[] readFile() throws IOException {
+            if (file == null || !file.exists()) {
+                throw new FileNotFoundException("模板缓存已失效！" + url);
+            }
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                return FastTemplateCache.readBytes(inputStream);
+            } finally {
+                FastFileUtils.closeQuietly(inputStream);
+            }
+        }
+
+        private void deleteFile() {
+            if (file != null && file.exists() && !file.delete()) {
+                file.deleteOnExit();
+            }
+            file = null;
+        }
+    }
+}
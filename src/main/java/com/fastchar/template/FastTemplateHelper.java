@@ -3,16 +3,19 @@ package com.fastchar.template;
 
 import com.fastchar.core.FastChar;
 import com.fastchar.core.FastHandler;
-import com.fastchar.core.FastMapWrap;
-import com.fastchar.template.interfaces.IFastTemplateData;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.info.FastTemplateJob;
+import com.fastchar.template.info.FastTemplateMetrics;
+import com.fastchar.template.info.FastTemplatePlaceholder;
+import com.fastchar.template.info.FastTemplateResult;
 import com.fastchar.template.interfaces.IFastTemplateRender;
 import com.fastchar.template.provider.FastExcelTemplateRender;
 import com.fastchar.template.provider.FastWordTemplateRender;
-import com.fastchar.utils.FastHttpURLConnectionUtils;
+import com.fastchar.utils.FastFileUtils;
 
 import java.io.*;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * 模板渲染工具类，模板的变量声明格式：${variable}、${variable.variable}、${variable[0].variable}
@@ -35,22 +38,23 @@ public class FastTemplateHelper {
      * @return 值
      */
     public static Object renderData(FastHandler handler, String key) {
-        Object inData = handler.get("__data");
-        if (inData instanceof Map) {
-            Map<?, ?> dataMap = (Map<?, ?>) inData;
-            Object value = FastMapWrap.newInstance(dataMap).get("${" + key + "}");
-            if (value != null) {
-                return value;
-            }
-        }
-        List<IFastTemplateData> iFastTemplateData = FastChar.getOverrides().newInstances(false, IFastTemplateData.class);
-        for (IFastTemplateData iFastTemplateDatum : iFastTemplateData) {
-            Object data = iFastTemplateDatum.getData(handler, key);
-            if (data != null) {
-                return data;
-            }
-        }
-        return null;
+        FastTemplateContext templateContext = FastTemplateContext.of(handler);
+        templateContext.getMetrics().addPlaceholder();
+        return templateContext.getData(key);
+    }
+
+    /**
+     * 获取变量值
+     *
+     * @param handler     渲染句柄，可注入到变量方法名中
+     * @param placeholder 变量占位符
+     * @param listIndex   列表下标，用于替换列表变量中的 [i]
+     * @return 值
+     */
+    public static Object renderData(FastHandler handler, FastTemplatePlaceholder placeholder, int listIndex) {
+        FastTemplateContext templateContext = FastTemplateContext.of(handler);
+        templateContext.getMetrics().addPlaceholder();
+        return templateContext.getData(placeholder.getKeyPath(), listIndex);
     }
 
     /**
@@ -127,19 +131,12 @@ public class FastTemplateHelper {
      * @param templateFile 模板文件，支持http格式地址
      * @param saveFile     渲染后保存的文件地址
      */
-    @SuppressWarnings("IOStreamConstructor")
     public static void renderFile(FastHandler handler, String templateFile, String saveFile) {
         try {
             if (handler == null) {
                 handler = new FastHandler();
             }
-            InputStream inputStream;
-            if (templateFile.startsWith("http:") || templateFile.startsWith("https:")) {
-                inputStream = FastHttpURLConnectionUtils.getInputStream(templateFile);
-            } else {
-                inputStream = new FileInputStream(templateFile);
-            }
-            FastTemplateHelper.renderFile(handler, inputStream, saveFile);
+            renderFile(handler, compile(handler, templateFile), saveFile);
         } catch (Exception e) {
             FastChar.getLogger().error(FastTemplateHelper.class, e);
         }
@@ -153,26 +150,508 @@ public class FastTemplateHelper {
      * @param templateFile 模板文件输入流
      * @param saveFile     渲染后保存的文件地址
      */
-    @SuppressWarnings("IOStreamConstructor")
     public static void renderFile(FastHandler handler, InputStream templateFile, String saveFile) {
         try {
+            renderFile(handler, FastTemplateCache.get(templateFile), saveFile);
+        } catch (Exception e) {
+            FastChar.getLogger().error(FastTemplateHelper.class, e);
+        }
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param handler          渲染句柄，可注入到变量方法名中
+     * @param compiledTemplate 已解析的模板
+     * @param saveFile         渲染后保存的文件地址
+     */
+    public static void renderFile(FastHandler handler, FastCompiledTemplate compiledTemplate, String saveFile) {
+        try {
+            doRender(handler, compiledTemplate, saveFile);
+        } catch (Exception e) {
+            FastChar.getLogger().error(FastTemplateHelper.class, e);
+        }
+    }
+
+    /**
+     * 使用同一个模板批量渲染，模板只解析一次，各任务在 {@link FastTemplateExecutors#getBatchExecutor()} 中并行渲染，
+     * 同时执行中的任务数超过线程数的2倍时将阻塞任务的提交
+     *
+     * @param templateFile 模板文件，支持http格式地址
+     * @param jobs         渲染任务，可传入 stream::iterator 逐个生成任务
+     * @return 每个任务的渲染结果，顺序与任务一致
+     */
+    public static List<FastTemplateResult> renderBatch(String templateFile, Iterable<FastTemplateJob> jobs) throws Exception {
+        return renderBatch(compile(templateFile), jobs);
+    }
+
+    /**
+     * 使用同一个模板批量渲染，各任务在 {@link FastTemplateExecutors#getBatchExecutor()} 中并行渲染，
+     * 同时执行中的任务数超过线程数的2倍时将阻塞任务的提交。各任务的渲染句柄需各不相同，
+     * 与之前的任务共用同一个 FastHandler 的任务不会渲染，结果为 IllegalArgumentException
+     *
+     * @param compiledTemplate 已解析的模板
+     * @param jobs             渲染任务，可传入 stream::iterator 逐个生成任务
+     * @return 每个任务的渲染结果，顺序与任务一致
+     */
+    public static List<FastTemplateResult> renderBatch(final FastCompiledTemplate compiledTemplate, Iterable<FastTemplateJob> jobs) throws InterruptedException {
+        int threads = Math.max(FastChar.getConfig(FastTemplateConfig.class).getBatchThreads(), 1);
+        final Semaphore semaphore = new Semaphore(threads * 2);
+        Set<FastHandler> handlers = Collections.newSetFromMap(new IdentityHashMap<FastHandler, Boolean>());
+        List<FastTemplateJob> jobList = new ArrayList<>();
+        List<Future<FastTemplateResult>> futures = new ArrayList<>();
+        for (final FastTemplateJob job : jobs) {
+            jobList.add(job);
+            if (job.getHandler() != null && !handlers.add(job.getHandler())) {
+                //渲染时将写入 __data 等值，共用的句柄会被其他任务覆盖
+                futures.add(null);
+                continue;
+            }
+            semaphore.acquire();
+            try {
+                futures.add(FastTemplateExecutors.getBatchExecutor().submit(new Callable<FastTemplateResult>() {
+                    @Override
+                    public FastTemplateResult call() {
+                        try {
+                            return renderJob(compiledTemplate, job);
+                        } finally {
+                            semaphore.release();
+                        }
+                    }
+                }));
+            } catch (RuntimeException e) {
+                semaphore.release();
+                throw e;
+            }
+        }
+        List<FastTemplateResult> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            Future<FastTemplateResult> future = futures.get(i);
+            if (future == null) {
+                results.add(new FastTemplateResult(jobList.get(i),
+                        new IllegalArgumentException("批量渲染的任务不可共用同一个FastHandler！"), 0));
+                continue;
+            }
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                results.add(new FastTemplateResult(jobList.get(i), e.getCause(), 0));
+            }
+        }
+        return results;
+    }
+
+    private static FastTemplateResult renderJob(FastCompiledTemplate compiledTemplate, FastTemplateJob job) {
+        long beginTime = System.currentTimeMillis();
+        try {
+            FastHandler handler = job.getHandler();
             if (handler == null) {
                 handler = new FastHandler();
             }
-            File fileObj = new File(saveFile);
-            if (!fileObj.getParentFile().exists()) {
-                if (!fileObj.getParentFile().mkdirs()) {
-                    FastChar.getLogger().error(FastTemplateHelper.class, new RuntimeException(fileObj.getParent() + "创建失败！"));
+            handler.put("__data", job.getData());
+            doRender(handler, compiledTemplate, job.getSaveFile());
+            return new FastTemplateResult(job, null, System.currentTimeMillis() - beginTime);
+        } catch (Throwable e) {
+            //包括 Error 在内的异常都记录到该任务的结果中，不影响其他任务
+            return new FastTemplateResult(job, e, System.currentTimeMillis() - beginTime);
+        }
+    }
+
+    /**
+     * 获取解析后的模板
+     *
+     * @param templateFile 模板文件，支持http格式地址
+     * @return 解析后的模板
+     */
+    public static FastCompiledTemplate compile(String templateFile) throws Exception {
+        if (templateFile.startsWith("http:") || templateFile.startsWith("https:")) {
+            return FastTemplateFetcher.compile(templateFile);
+        }
+        return FastTemplateCache.get(new File(templateFile));
+    }
+
+    /**
+     * 获取解析后的模板，并记录获取耗时
+     */
+    private static FastCompiledTemplate compile(FastHandler handler, String templateFile) throws Exception {
+        long beginTime = System.nanoTime();
+        FastTemplateMetrics metrics = new FastTemplateMetrics().setTemplate(templateFile);
+        try {
+            FastCompiledTemplate compiledTemplate = compile(templateFile);
+            metrics.addPhase(FastTemplateMetrics.PHASE_FETCH, System.nanoTime() - beginTime);
+            handler.put("__metrics", metrics);
+            return compiledTemplate;
+        } catch (Exception e) {
+            metrics.addPhase(FastTemplateMetrics.PHASE_FETCH, System.nanoTime() - beginTime);
+            metrics.setError(e).setFinished(true);
+            FastTemplateMonitor.notifyListeners(metrics);
+            throw e;
+        }
+    }
+
+    /**
+     * 渲染模板到输出流，输出流渲染完毕后不会关闭，可直接传入响应的输出流
+     *
+     * @param data         数据集合
+     * @param templateFile 模板文件，支持http格式地址
+     * @param outputStream 输出流
+     * @param fileType     输出的文件类型，例如：xlsx、docx
+     */
+    public static void renderStream(Map<String, Object> data, String templateFile, OutputStream outputStream, String fileType) throws Exception {
+        FastHandler handler = new FastHandler();
+        handler.put("__data", data);
+        renderStream(handler, compile(handler, templateFile), outputStream, fileType);
+    }
+
+    /**
+     * 渲染模板到输出流，输出流渲染完毕后不会关闭，可直接传入响应的输出流
+     *
+     * @param handler      渲染句柄，可注入到变量方法名中
+     * @param templateFile 模板文件，支持http格式地址
+     * @param outputStream 输出流
+     * @param fileType     输出的文件类型，例如：xlsx、docx
+     */
+    public static void renderStream(FastHandler handler, String templateFile, OutputStream outputStream, String fileType) throws Exception {
+        if (handler == null) {
+            handler = new FastHandler();
+        }
+        renderStream(handler, compile(handler, templateFile), outputStream, fileType);
+    }
+
+    /**
+     * 渲染模板到输出流，输出流渲染完毕后不会关闭，可直接传入响应的输出流
+     *
+     * @param handler          渲染句柄，可注入到变量方法名中
+     * @param compiledTemplate 已解析的模板
+     * @param outputStream     输出流
+     * @param fileType         输出的文件类型，例如：xlsx、docx
+     */
+    public static void renderStream(FastHandler handler, FastCompiledTemplate compiledTemplate, OutputStream outputStream, String fileType) throws Exception {
+        doRender(handler, compiledTemplate, toFileName(fileType), new UnclosedOutputStream(outputStream));
+        outputStream.flush();
+    }
+
+    /**
+     * 渲染模板到内存中
+     *
+     * @param data         数据集合
+     * @param templateFile 模板文件，支持http格式地址
+     * @param fileType     输出的文件类型，例如：xlsx、docx
+     * @return 渲染后的文件内容
+     */
+    public static byte[] renderBytes(Map<String, Object> data, String templateFile, String fileType) throws Exception {
+        FastHandler handler = new FastHandler();
+        handler.put("__data", data);
+        return renderBytes(handler, compile(handler, templateFile), fileType);
+    }
+
+    /**
+     * 渲染模板到内存中
+     *
+     * @param handler          渲染句柄，可注入到变量方法名中
+     * @param compiledTemplate 已解析的模板
+     * @param fileType         输出的文件类型，例如：xlsx、docx
+     * @return 渲染后的文件内容
+     */
+    public static byte[] renderBytes(FastHandler handler, FastCompiledTemplate compiledTemplate, String fileType) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64 * 1024);
+        doRender(handler, compiledTemplate, toFileName(fileType), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 在 {@link FastTemplateExecutors#getAsyncExecutor()} 中异步渲染模板，渲染失败时返回的结果以异常结束
+     *
+     * @param data         数据集合
+     * @param templateFile 模板文件，支持http格式地址
+     * @param saveFile     渲染后保存的文件地址
+     * @return 渲染结果，值为保存的文件地址
+     */
+    public static CompletableFuture<String> renderFileAsync(Map<String, Object> data, String templateFile, String saveFile) {
+        FastHandler handler = new FastHandler();
+        handler.put("__data", data);
+        return renderFileAsync(handler, templateFile, saveFile);
+    }
+
+    /**
+     * 在 {@link FastTemplateExecutors#getAsyncExecutor()} 中异步渲染模板，渲染失败时返回的结果以异常结束
+     *
+     * @param handler      渲染句柄，可注入到变量方法名中
+     * @param templateFile 模板文件，支持http格式地址
+     * @param saveFile     渲染后保存的文件地址
+     * @return 渲染结果，值为保存的文件地址
+     */
+    public static CompletableFuture<String> renderFileAsync(final FastHandler handler, final String templateFile, final String saveFile) {
+        return submitAsync(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                FastHandler renderHandler = handler == null ? new FastHandler() : handler;
+                doRender(renderHandler, compile(renderHandler, templateFile), saveFile);
+                return saveFile;
+            }
+        });
+    }
+
+    /**
+     * 在 {@link FastTemplateExecutors#getAsyncExecutor()} 中异步渲染模板，渲染失败时返回的结果以异常结束
+     *
+     * @param handler          渲染句柄，可注入到变量方法名中
+     * @param compiledTemplate 已解析的模板
+     * @param saveFile         渲染后保存的文件地址
+     * @return 渲染结果，值为保存的文件地址
+     */
+    public static CompletableFuture<String> renderFileAsync(final FastHandler handler, final FastCompiledTemplate compiledTemplate, final String saveFile) {
+        return submitAsync(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                doRender(handler, compiledTemplate, saveFile);
+                return saveFile;
+            }
+        });
+    }
+
+    /**
+     * 在 {@link FastTemplateExecutors#getAsyncExecutor()} 中异步渲染模板到内存中，渲染失败时返回的结果以异常结束
+     *
+     * @param data         数据集合
+     * @param templateFile 模板文件，支持http格式地址
+     * @param fileType     输出的文件类型，例如：xlsx、docx
+     * @return 渲染结果，值为渲染后的文件内容
+     */
+    public static CompletableFuture<byte[]> renderBytesAsync(final Map<String, Object> data, final String templateFile, final String fileType) {
+        return submitAsync(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return renderBytes(data, templateFile, fileType);
+            }
+        });
+    }
+
+    /**
+     * 在 {@link FastTemplateExecutors#getAsyncExecutor()} 中异步渲染模板到内存中，渲染失败时返回的结果以异常结束
+     *
+     * @param handler          渲染句柄，可注入到变量方法名中
+     * @param compiledTemplate 已解析的模板
+     * @param fileType         输出的文件类型，例如：xlsx、docx
+     * @return 渲染结果，值为渲染后的文件内容
+     */
+    public static CompletableFuture<byte[]> renderBytesAsync(final FastHandler handler, final FastCompiledTemplate compiledTemplate, final String fileType) {
+        return submitAsync(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return renderBytes(handler, compiledTemplate, fileType);
+            }
+        });
+    }
+
+    /**
+     * 提交异步任务，线程池拒绝任务时返回以 RejectedExecutionException 结束的结果，结果被取消后尚未开始的任务不再执行
+     */
+    private static <T> CompletableFuture<T> submitAsync(final Callable<T> callable) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            FastTemplateExecutors.getAsyncExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try {
+                        future.complete(callable.call());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static String toFileName(String fileType) {
+        if (fileType.contains(".")) {
+            return fileType;
+        }
+        return "template." + fileType;
+    }
+
+    /**
+     * 执行渲染，渲染失败时抛出异常
+     */
+    @SuppressWarnings("IOStreamConstructor")
+    private static void doRender(FastHandler handler, FastCompiledTemplate compiledTemplate, String saveFile) throws Exception {
+        File fileObj = new File(saveFile);
+        if (!fileObj.getParentFile().exists()) {
+            if (!fileObj.getParentFile().mkdirs()) {
+                FastChar.getLogger().error(FastTemplateHelper.class, new RuntimeException(fileObj.getParent() + "创建失败！"));
             }
-            OutputStream outputStream = new FileOutputStream(saveFile);
-            handler.put("__fileName", fileObj.getName());
-            List<IFastTemplateRender> iFastTemplateRenders = FastChar.getOverrides().newInstances(IFastTemplateRender.class);
-            for (IFastTemplateRender iFastTemplateRender : iFastTemplateRenders) {
-                iFastTemplateRender.onRender(handler, templateFile, outputStream);
+        }
+        doRender(handler, compiledTemplate, fileObj.getName(), new FileOutputStream(saveFile));
+    }
+
+    /**
+     * 执行渲染，渲染失败时抛出异常
+     *
+     * @param fileName     输出的文件名，渲染器根据文件名判断文件类型
+     * @param outputStream 输出流，渲染完毕后关闭
+     */
+    private static void doRender(FastHandler handler, FastCompiledTemplate compiledTemplate, String fileName, OutputStream outputStream) throws Exception {
+        if (handler == null) {
+            handler = new FastHandler();
+        }
+        long beginTime = System.nanoTime();
+        Object value = handler.get("__metrics");
+        FastTemplateMetrics metrics = value instanceof FastTemplateMetrics && !((FastTemplateMetrics) value).isFinished() ? (FastTemplateMetrics) value : new FastTemplateMetrics();
+        metrics.setTemplate(compiledTemplate.getKey()).setFileName(fileName);
+        handler.put("__metrics", metrics);
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        outputStream = countingOutputStream;
+
+        String cacheKey = null;
+        CachingOutputStream cachingOutputStream = null;
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        if (templateConfig.isOutputCache()) {
+            cacheKey = FastTemplateOutputCache.getKey(compiledTemplate, fileName, handler.get("__data"));
+        }
+
+        FastTemplateContext templateContext = null;
+        try {
+            if (cacheKey != null) {
+                byte[] content = FastTemplateOutputCache.get(cacheKey);
+                if (content != null) {
+                    handler.put("__exception", null);
+                    outputStream.write(content);
+                    metrics.setCached(true);
+                    return;
+                }
+                cachingOutputStream = new CachingOutputStream(outputStream, templateConfig.getOutputCacheMaxSize());
+                outputStream = cachingOutputStream;
+            }
+            if (templateConfig.isAdmission()) {
+                FastTemplateAdmission.acquire(handler, compiledTemplate);
+            }
+            handler.put("__fileName", fileName);
+            handler.put("__template", compiledTemplate);
+            templateContext = new FastTemplateContext(handler);
+            handler.put("__context", templateContext);
+            handler.put("__exception", null);
+            IFastTemplateRender iFastTemplateRender = FastTemplateRenders.getRender(fileName, compiledTemplate);
+            List<IFastTemplateRender> otherRenders = FastTemplateRenders.getOtherRenders();
+            if (iFastTemplateRender == null && otherRenders.isEmpty()) {
+                throw new IllegalArgumentException("不支持的模板类型！" + fileName);
+            }
+            if (iFastTemplateRender != null) {
+                iFastTemplateRender.onRender(handler, compiledTemplate.newInputStream(), outputStream);
+            }
+            //未关联文件类型的渲染器与之前版本一样每次渲染都执行，可根据 handler 的 code==0 判断模板是否已被渲染
+            for (IFastTemplateRender otherRender : otherRenders) {
+                otherRender.onRender(handler, compiledTemplate.newInputStream(), outputStream);
             }
         } catch (Exception e) {
-            FastChar.getLogger().error(FastTemplateHelper.class, e);
+            metrics.setError(e);
+            throw e;
+        } finally {
+            if (templateContext != null) {
+                templateContext.close();
+            }
+            FastTemplateAdmission.release(handler);
+            FastFileUtils.closeQuietly(outputStream);
+            Object exception = handler.get("__exception");
+            if (exception instanceof Throwable && metrics.getError() == null) {
+                metrics.setError((Throwable) exception);
+            }
+            metrics.setOutputBytes(countingOutputStream.count);
+            metrics.addPhase(FastTemplateMetrics.PHASE_TOTAL, System.nanoTime() - beginTime);
+            metrics.setFinished(true);
+            FastTemplateMonitor.notifyListeners(metrics);
+        }
+        Object exception = handler.get("__exception");
+        if (exception instanceof Exception) {
+            throw (Exception) exception;
+        }
+        //变量取自 handler、FastMapWrap 或 IFastTemplateData 时渲染结果不只由 __data 决定，不缓存
+        if (cachingOutputStream != null && cachingOutputStream.buffer != null && templateContext.isDataOnly()) {
+            FastTemplateOutputCache.put(cacheKey, compiledTemplate.getKey(), cachingOutputStream.buffer.toByteArray());
+        }
+    }
+
+    /**
+     * 统计写入字节数的输出流
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * 写入目标流的同时复制一份内容用于缓存，超过上限时放弃复制
+     */
+    private static class CachingOutputStream extends FilterOutputStream {
+        private final long maxSize;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+
+        CachingOutputStream(OutputStream out, long maxSize) {
+            super(out);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy(b, off, len);
+        }
+
+        private void copy(byte[] b, int off, int len) {
+            if (buffer == null) {
+                return;
+            }
+            if (buffer.size() + len > maxSize) {
+                buffer = null;
+                return;
+            }
+            buffer.write(b, off, len);
+        }
+    }
+
+    /**
+     * 关闭时仅刷新、不关闭目标流的输出流，避免渲染器关闭调用方传入的输出流
+     */
+    private static class UnclosedOutputStream extends FilterOutputStream {
+
+        UnclosedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
         }
     }
 
@@ -0,0 +1,75 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.info.FastTemplateMetrics;
+import com.fastchar.template.interfaces.IFastTemplateMetricsListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 渲染统计监听器的注册表，FastChar.getOverrides() 中的监听器只在首次使用时加载一次
+ */
+public class FastTemplateMonitor {
+
+    private static final List<IFastTemplateMetricsListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private static volatile boolean loaded;
+
+    /**
+     * 添加监听器
+     *
+     * @param listener 监听器
+     */
+    public static void addListener(IFastTemplateMetricsListener listener) {
+        loadOverrides();
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * 移除监听器
+     *
+     * @param listener 监听器
+     */
+    public static void removeListener(IFastTemplateMetricsListener listener) {
+        loadOverrides();
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * 是否存在监听器
+     */
+    public static boolean hasListener() {
+        loadOverrides();
+        return !LISTENERS.isEmpty();
+    }
+
+    /**
+     * 通知所有监听器，监听器的异常不会影响渲染结果
+     *
+     * @param metrics 统计信息
+     */
+    public static void notifyListeners(FastTemplateMetrics metrics) {
+        loadOverrides();
+        for (IFastTemplateMetricsListener listener : LISTENERS) {
+            try {
+                listener.onRendered(metrics);
+            } catch (Exception e) {
+                FastChar.getLogger().error(FastTemplateMonitor.class, e);
+            }
+        }
+    }
+
+    private static void loadOverrides() {
+        if (loaded) {
+            return;
+        }
+        synchronized (LISTENERS) {
+            if (loaded) {
+                return;
+            }
+            LISTENERS.addAll(FastChar.getOverrides().newInstances(false, IFastTemplateMetricsListener.class));
+            loaded = true;
+        }
+    }
+}
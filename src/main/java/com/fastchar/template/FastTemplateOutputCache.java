@@ -0,0 +1,329 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.info.FastWordTableInfo;
+import com.fastchar.utils.FastFileUtils;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * 渲染结果的缓存，以模板标识、输出类型、影响输出的配置及数据摘要作为缓存标识，由 {@link FastTemplateConfig#isOutputCache()} 开启。
+ * 缓存占用内存超过上限时，最近最少使用的渲染结果将写入磁盘或被移除，磁盘占用超过上限时最近最少使用的文件将被删除
+ */
+public class FastTemplateOutputCache {
+
+    private static final int MAX_DEPTH = 32;
+
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long memorySize;
+
+    private static long diskSize;
+
+    /**
+     * 获取渲染结果的缓存标识
+     *
+     * @param compiledTemplate 已解析的模板
+     * @param fileName         输出的文件名
+     * @param data             数据集合
+     * @return 缓存标识，数据中包含无法计算摘要的值时返回null
+     */
+    public static String getKey(FastCompiledTemplate compiledTemplate, String fileName, Object data) {
+        String fingerprint = fingerprint(data);
+        if (fingerprint == null) {
+            return null;
+        }
+        String fileType = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        String options = templateConfig.isExcelStreaming() + ":" + templateConfig.getExcelSplitRows() + ":" + templateConfig.isExcelTypedValue();
+        return compiledTemplate.getKey() + "|" + fileType + "|" + options + "|" + fingerprint;
+    }
+
+    /**
+     * 计算数据的摘要，Map 按键排序后计算，与键的插入顺序无关
+     *
+     * @param data 数据，支持 Map、List、数组、字符串、数字、布尔、日期、枚举及 FastWordTableInfo
+     * @return 摘要，包含其他类型的值时返回null
+     */
+    public static String fingerprint(Object data) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            if (!update(messageDigest, data, 0)) {
+                return null;
+            }
+            return new BigInteger(1, messageDigest.digest()).toString(16);
+        } catch (Exception e) {
+            FastChar.getLogger().error(FastTemplateOutputCache.class, e);
+            return null;
+        }
+    }
+
+    /**
+     * 获取缓存的渲染结果
+     *
+     * @param key 缓存标识
+     * @return 渲染结果，未缓存或已过期时返回null
+     */
+    public static byte[] get(String key) {
+        Entry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - entry.createTime > FastChar.getConfig(FastTemplateConfig.class).getOutputCacheTtl()) {
+                ENTRIES.remove(key);
+                release(entry);
+                return null;
+            }
+            if (entry.content != null) {
+                return entry.content;
+            }
+        }
+        try {
+            return entry.readContent();
+        } catch (IOException e) {
+            //缓存文件已被淘汰，重新渲染后将覆盖该缓存
+            return null;
+        }
+    }
+
+    /**
+     * 缓存渲染结果
+     *
+     * @param key      缓存标识
+     * @param template 模板标识，用于按模板移除缓存
+     * @param content  渲染结果
+     */
+    public static void put(String key, String template, byte[] content) {
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        if (content.length > templateConfig.getOutputCacheMaxSize()) {
+            return;
+        }
+        Entry entry = new Entry();
+        entry.key = key;
+        entry.template = template;
+        entry.size = content.length;
+        entry.content = content;
+        entry.createTime = System.currentTimeMillis();
+        synchronized (ENTRIES) {
+            Entry oldEntry = ENTRIES.put(key, entry);
+            if (oldEntry != null) {
+                release(oldEntry);
+            }
+            memorySize += entry.size;
+
+            Iterator<Entry> iterator = ENTRIES.values().iterator();
+            while (memorySize > templateConfig.getOutputCacheMaxSize() && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                if (eldest == entry || eldest.content == null) {
+                    continue;
+                }
+                if (!spill(eldest, templateConfig.getOutputCacheDiskDir())) {
+                    iterator.remove();
+                    release(eldest);
+                }
+            }
+
+            iterator = ENTRIES.values().iterator();
+            while (diskSize > templateConfig.getOutputCacheDiskMaxSize() && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                if (eldest.file != null) {
+                    iterator.remove();
+                    release(eldest);
+                }
+            }
+        }
+    }
+
+    /**
+     * 移除指定的缓存
+     *
+     * @param key 缓存标识
+     */
+    public static void remove(String key) {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.remove(key);
+            if (entry != null) {
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * 移除模板的全部渲染结果
+     *
+     * @param template 模板文件路径、网络模板地址或 {@link FastCompiledTemplate#getKey()}
+     */
+    public static void invalidate(String template) {
+        String prefix = template;
+        if (!template.startsWith("http:") && !template.startsWith("https:") && !template.startsWith("md5:")) {
+            prefix = new File(template).getAbsolutePath();
+        }
+        synchronized (ENTRIES) {
+            Iterator<Entry> iterator = ENTRIES.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.template.equals(template) || entry.template.equals(prefix)
+                        || entry.template.startsWith(prefix + "@") || entry.template.startsWith(prefix + "#")) {
+                    iterator.remove();
+                    release(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        synchronized (ENTRIES) {
+            for (Entry entry : ENTRIES.values()) {
+                release(entry);
+            }
+            ENTRIES.clear();
+        }
+    }
+
+    private static boolean update(MessageDigest messageDigest, Object value, int depth) {
+        if (depth > MAX_DEPTH) {
+            return false;
+        }
+        if (value == null) {
+            updateString(messageDigest, 'N', "");
+        } else if (value instanceof CharSequence) {
+            updateString(messageDigest, 'S', value.toString());
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            updateString(messageDigest, 'V', value.getClass().getName() + ":" + value);
+        } else if (value instanceof Date) {
+            updateString(messageDigest, 'T', value.getClass().getName() + ":" + ((Date) value).getTime());
+        } else if (value instanceof Enum) {
+            updateString(messageDigest, 'E', value.getClass().getName() + ":" + ((Enum<?>) value).name());
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            List<Map.Entry<?, ?>> entries = new ArrayList<Map.Entry<?, ?>>(map.entrySet());
+            Collections.sort(entries, new Comparator<Map.Entry<?, ?>>() {
+                @Override
+                public int compare(Map.Entry<?, ?> o1, Map.Entry<?, ?> o2) {
+                    return String.valueOf(o1.getKey()).compareTo(String.valueOf(o2.getKey()));
+                }
+            });
+            updateString(messageDigest, 'M', String.valueOf(entries.size()));
+            for (Map.Entry<?, ?> entry : entries) {
+                if (!update(messageDigest, entry.getKey(), depth + 1) || !update(messageDigest, entry.getValue(), depth + 1)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof List || value instanceof SortedSet || value instanceof LinkedHashSet) {
+            Collection<?> collection = (Collection<?>) value;
+            updateString(messageDigest, 'L', String.valueOf(collection.size()));
+            for (Object item : collection) {
+                if (!update(messageDigest, item, depth + 1)) {
+                    return false;
+                }
+            }
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            updateString(messageDigest, 'L', String.valueOf(length));
+            for (int i = 0; i < length; i++) {
+                if (!update(messageDigest, Array.get(value, i), depth + 1)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof FastWordTableInfo) {
+            FastWordTableInfo tableInfo = (FastWordTableInfo) value;
+            if (tableInfo.getValueIterator() != null) {
+                return false;
+            }
+            updateString(messageDigest, 'W', "");
+            return update(messageDigest, tableInfo.getTitles(), depth + 1) && update(messageDigest, tableInfo.getValues(), depth + 1);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void updateString(MessageDigest messageDigest, char type, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        messageDigest.update((byte) type);
+        messageDigest.update(String.valueOf(bytes.length).getBytes(StandardCharsets.UTF_8));
+        messageDigest.update((byte) ':');
+        messageDigest.update(bytes);
+    }
+
+    /**
+     * 将渲染结果写入磁盘，释放内存
+     */
+    private static boolean spill(Entry entry, String diskDir) {
+        if (diskDir == null) {
+            return false;
+        }
+        try {
+            File dir = new File(diskDir);
+            if (!dir.exists() && !dir.mkdirs()) {
+                return false;
+            }
+            File file = new File(dir, FastTemplateCache.digest(entry.key.getBytes(StandardCharsets.UTF_8)) + ".output");
+            OutputStream outputStream = new FileOutputStream(file);
+            try {
+                outputStream.write(entry.content);
+            } finally {
+                FastFileUtils.closeQuietly(outputStream);
+            }
+            entry.file = file;
+            entry.content = null;
+            memorySize -= entry.size;
+            diskSize += entry.size;
+            return true;
+        } catch (Exception e) {
+            FastChar.getLogger().error(FastTemplateOutputCache.class, e);
+            return false;
+        }
+    }
+
+    private static void release(Entry entry) {
+        if (entry.content != null) {
+            memorySize -= entry.size;
+            entry.content = null;
+        }
+        if (entry.file != null) {
+            diskSize -= entry.size;
+            if (entry.file.exists() && !entry.file.delete()) {
+                entry.file.deleteOnExit();
+            }
+            entry.file = null;
+        }
+    }
+
+    private static class Entry {
+        private String key;
+        private String template;
+        private long size;
+        private long createTime;
+        private volatile byte[] content;
+        private volatile File file;
+
+        private byte[] readContent() throws IOException {
+            byte[] bytes = content;
+            if (bytes != null) {
+                return bytes;
+            }
+            File diskFile = file;
+            if (diskFile == null || !diskFile.exists()) {
+                throw new FileNotFoundException("渲染结果缓存已失效！" + key);
+            }
+            InputStream inputStream = new FileInputStream(diskFile);
+            try {
+                return FastTemplateCache.readBytes(inputStream);
+            } finally {
+                FastFileUtils.closeQuietly(inputStream);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.interfaces.IFastTemplateRender;
+import com.fastchar.template.provider.FastExcelTemplateRender;
+import com.fastchar.template.provider.FastWordTemplateRender;
+import com.fastchar.utils.FastFileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 模板渲染器注册表，按文件类型保存单例渲染器，渲染时直接根据文件后缀或模板内容选取渲染器，渲染器必须是线程安全的
+ */
+public class FastTemplateRenders {
+
+    private static final Map<String, IFastTemplateRender> RENDERS = new ConcurrentHashMap<>();
+
+    private static volatile List<IFastTemplateRender> otherRenders;
+
+    /**
+     * 注册渲染器
+     *
+     * @param render    渲染器
+     * @param fileTypes 文件类型，例如：xlsx、docx
+     */
+    public static void register(IFastTemplateRender render, String... fileTypes) {
+        loadOverrides();
+        for (String fileType : fileTypes) {
+            RENDERS.put(normalize(fileType), render);
+        }
+    }
+
+    /**
+     * 移除指定文件类型的渲染器
+     *
+     * @param fileType 文件类型
+     */
+    public static void unregister(String fileType) {
+        loadOverrides();
+        RENDERS.remove(normalize(fileType));
+    }
+
+    /**
+     * 获取文件类型对应的渲染器
+     *
+     * @param fileType 文件类型
+     * @return 渲染器，未注册时返回null
+     */
+    public static IFastTemplateRender getRender(String fileType) {
+        loadOverrides();
+        if (fileType == null) {
+            return null;
+        }
+        return RENDERS.get(normalize(fileType));
+    }
+
+    /**
+     * 获取模板对应的渲染器，根据文件名后缀获取，文件名没有后缀或为zip时根据模板内容识别文件类型
+     *
+     * @param fileName         渲染后的文件名
+     * @param compiledTemplate 解析模板
+     * @return 渲染器，无法识别时返回null
+     */
+    public static IFastTemplateRender getRender(String fileName, FastCompiledTemplate compiledTemplate) {
+        String fileType = getFileType(fileName);
+        if ("zip".equalsIgnoreCase(fileType)) {
+            //Excel按行数拆分为多个文件时输出zip，根据模板内容选取渲染器
+            fileType = null;
+        }
+        if (fileType == null && compiledTemplate != null) {
+            fileType = compiledTemplate.getFileType();
+            if (fileType == null) {
+                fileType = sniffFileType(compiledTemplate.getContent());
+                compiledTemplate.setFileType(fileType);
+            }
+        }
+        return getRender(fileType);
+    }
+
+    /**
+     * 获取通过 FastChar.getOverrides() 注册且未关联文件类型的渲染器，每次渲染时在文件类型对应的渲染器之后依次执行，
+     * 需关联文件类型时使用 {@link #register(IFastTemplateRender, String...)} 注册
+     *
+     * @return 渲染器集合
+     */
+    public static List<IFastTemplateRender> getOtherRenders() {
+        loadOverrides();
+        return otherRenders;
+    }
+
+    private static void loadOverrides() {
+        if (otherRenders != null) {
+            return;
+        }
+        synchronized (RENDERS) {
+            if (otherRenders != null) {
+                return;
+            }
+            List<IFastTemplateRender> renders = new ArrayList<>();
+            for (IFastTemplateRender render : FastChar.getOverrides().newInstances(IFastTemplateRender.class)) {
+                if (render instanceof FastExcelTemplateRender) {
+                    RENDERS.put("xls", render);
+                    RENDERS.put("xlsx", render);
+                } else if (render instanceof FastWordTemplateRender) {
+                    RENDERS.put("doc", render);
+                    RENDERS.put("docx", render);
+                    RENDERS.put("pdf", render);
+                } else {
+                    renders.add(render);
+                }
+            }
+            //内置渲染器不依赖 FastTemplateHelper 初始化时添加到 FastChar.getOverrides()，未被覆盖时直接注册
+            if (!RENDERS.containsKey("xlsx")) {
+                IFastTemplateRender render = new FastExcelTemplateRender();
+                RENDERS.put("xls", render);
+                RENDERS.put("xlsx", render);
+            }
+            if (!RENDERS.containsKey("docx")) {
+                IFastTemplateRender render = new FastWordTemplateRender();
+                RENDERS.put("doc", render);
+                RENDERS.put("docx", render);
+                RENDERS.put("pdf", render);
+            }
+            otherRenders = Collections.unmodifiableList(renders);
+        }
+    }
+
+    private static String getFileType(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        int index = fileName.lastIndexOf('.');
+        if (index < 0 || index < Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'))) {
+            return null;
+        }
+        return fileName.substring(index + 1);
+    }
+
+    private static String normalize(String fileType) {
+        if (fileType.startsWith(".")) {
+            fileType = fileType.substring(1);
+        }
+        return fileType.toLowerCase();
+    }
+
+    /**
+     * 根据文件头识别 Office 文件类型，无法识别时返回空字符串
+     */
+    private static String sniffFileType(byte[] content) {
+        if (content == null || content.length < 8) {
+            return "";
+        }
+        if ((content[0] & 0xFF) == 0xD0 && (content[1] & 0xFF) == 0xCF
+                && (content[2] & 0xFF) == 0x11 && (content[3] & 0xFF) == 0xE0) {
+            return "xls";
+        }
+        if (content[0] != 'P' || content[1] != 'K') {
+            return "";
+        }
+        ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(content));
+        try {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                if (entry.getName().startsWith("word/")) {
+                    return "docx";
+                }
+                if (entry.getName().startsWith("xl/")) {
+                    return "xlsx";
+                }
+            }
+        } catch (IOException e) {
+            FastChar.getLogger().error(FastTemplateRenders.class, e);
+        } finally {
+            FastFileUtils.closeQuietly(zipInputStream);
+        }
+        return "";
+    }
+}
@@ -0,0 +1,76 @@
+package com.fastchar.template.info;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已解析的模板，保存模板文件内容以及各渲染器解析出的变量位置索引，可在多次渲染间复用
+ */
+public class FastCompiledTemplate {
+
+    private final String key;
+
+    private final byte[] content;
+
+    private final Map<Class<?>, Object> indexes = new ConcurrentHashMap<>();
+
+    private volatile String fileType;
+
+    public FastCompiledTemplate(String key, byte[] content) {
+        this.key = key;
+        this.content = content;
+    }
+
+    /**
+     * 模板标识，由文件路径与修改时间或文件内容摘要组成
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * 获取模板内容的输入流，每次调用返回新的输入流
+     */
+    public InputStream newInputStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * 获取渲染器解析出的索引
+     *
+     * @param indexClass 索引类型
+     * @return 索引，未解析时返回null
+     */
+    public <T> T getIndex(Class<T> indexClass) {
+        return indexClass.cast(indexes.get(indexClass));
+    }
+
+    /**
+     * 保存渲染器解析出的索引，索引必须为只读对象
+     *
+     * @param index 索引
+     * @return 当前对象
+     */
+    public FastCompiledTemplate setIndex(Object index) {
+        indexes.put(index.getClass(), index);
+        return this;
+    }
+
+    /**
+     * 根据模板内容识别出的文件类型，未识别时返回null
+     */
+    public String getFileType() {
+        return fileType;
+    }
+
+    public FastCompiledTemplate setFileType(String fileType) {
+        this.fileType = fileType;
+        return this;
+    }
+}
@@ -0,0 +1,109 @@
+package com.fastchar.template.info;
+
+/**
+ * 直接导出Excel时的列定义
+ */
+public class FastExcelColumnInfo {
+
+    /**
+     * 文本
+     */
+    public static final String TYPE_STRING = "string";
+
+    /**
+     * 数字，字符串值将尝试转换为数字，无法转换或超过15位有效数字时写为文本
+     */
+    public static final String TYPE_NUMBER = "number";
+
+    /**
+     * 日期，支持 Date、Calendar、LocalDate、LocalDateTime 及毫秒数
+     */
+    public static final String TYPE_DATE = "date";
+
+    /**
+     * 布尔，字符串值 true、1、y、yes、是 写为TRUE，false、0、n、no、否 写为FALSE（不区分大小写），其他字符串写为文本
+     */
+    public static final String TYPE_BOOLEAN = "boolean";
+
+    private String title;
+
+    private String key;
+
+    private String type;
+
+    private String format;
+
+    private int width;
+
+    private FastTemplateKeyPath keyPath;
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * 设置表头标题
+     */
+    public FastExcelColumnInfo setTitle(String title) {
+        this.title = title;
+        return this;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 设置列的取值路径，例如：name、user.name、items[0].name，行数据为List或数组且未设置时按列的位置取值
+     */
+    public FastExcelColumnInfo setKey(String key) {
+        this.key = key;
+        this.keyPath = key == null ? null : FastTemplateKeyPath.compile(key);
+        return this;
+    }
+
+    /**
+     * 获取预编译的取值路径
+     *
+     * @return 取值路径，未设置key时返回null
+     */
+    public FastTemplateKeyPath getKeyPath() {
+        return keyPath;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * 设置单元格类型，例如：{@link #TYPE_NUMBER}，为空时按值的类型写入
+     */
+    public FastExcelColumnInfo setType(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * 设置单元格的Excel格式，例如：0.00、yyyy-mm-dd，日期为空时使用 FastChar 的日期格式
+     */
+    public FastExcelColumnInfo setFormat(String format) {
+        this.format = format;
+        return this;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * 设置列宽，单位：字符数，小于等于0时使用默认列宽
+     */
+    public FastExcelColumnInfo setWidth(int width) {
+        this.width = width;
+        return this;
+    }
+}
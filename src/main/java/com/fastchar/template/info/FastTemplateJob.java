@@ -0,0 +1,50 @@
+package com.fastchar.template.info;
+
+import com.fastchar.core.FastHandler;
+
+import java.util.Map;
+
+/**
+ * 批量渲染的任务
+ */
+public class FastTemplateJob {
+
+    private FastHandler handler;
+
+    private Map<String, Object> data;
+
+    private String saveFile;
+
+    public FastHandler getHandler() {
+        return handler;
+    }
+
+    /**
+     * 设置渲染句柄，可注入到变量方法名中，为空时自动创建；渲染时将写入 __data 等值，同一批次的任务不可共用同一个句柄
+     */
+    public FastTemplateJob setHandler(FastHandler handler) {
+        this.handler = handler;
+        return this;
+    }
+
+    public Map<String, Object> getData() {
+        return data;
+    }
+
+    public FastTemplateJob setData(Map<String, Object> data) {
+        this.data = data;
+        return this;
+    }
+
+    public String getSaveFile() {
+        return saveFile;
+    }
+
+    /**
+     * 设置渲染后保存的文件地址
+     */
+    public FastTemplateJob setSaveFile(String saveFile) {
+        this.saveFile = saveFile;
+        return this;
+    }
+}
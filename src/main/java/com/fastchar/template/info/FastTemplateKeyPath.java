@@ -0,0 +1,242 @@
+package com.fastchar.template.info;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的变量路径，例如：a.b[3].c、list[i].name，仅支持Map、List、数组及 {@link FastTemplateRows} 的取值，
+ * 无法解析的路径返回 {@link #UNRESOLVED}，由调用方交由 FastMapWrap 处理
+ */
+public final class FastTemplateKeyPath {
+
+    /**
+     * 路径无法按Map、List及数组解析时的返回值
+     */
+    public static final Object UNRESOLVED = new Object();
+
+    private static final int LIST_INDEX = -1;
+
+    /**
+     * 编译变量路径
+     *
+     * @param key 变量标识符
+     * @return 变量路径，不会返回null
+     */
+    public static FastTemplateKeyPath compile(String key) {
+        List<Object> segments = new ArrayList<>();
+        boolean list = false;
+        int length = key.length();
+        int position = 0;
+        while (position < length) {
+            char c = key.charAt(position);
+            if (c == '.') {
+                position++;
+                continue;
+            }
+            if (c == '[') {
+                int end = key.indexOf(']', position);
+                if (end < 0) {
+                    return new FastTemplateKeyPath(key, null, false);
+                }
+                String index = key.substring(position + 1, end).trim();
+                if ("i".equals(index)) {
+                    segments.add(LIST_INDEX);
+                    list = true;
+                } else if (isDigits(index)) {
+                    segments.add(Integer.parseInt(index));
+                } else {
+                    return new FastTemplateKeyPath(key, null, list);
+                }
+                position = end + 1;
+                continue;
+            }
+            int begin = position;
+            while (position < length && isNameChar(key.charAt(position))) {
+                position++;
+            }
+            if (begin == position) {
+                return new FastTemplateKeyPath(key, null, list);
+            }
+            segments.add(key.substring(begin, position));
+        }
+        if (segments.isEmpty()) {
+            return new FastTemplateKeyPath(key, null, false);
+        }
+        return new FastTemplateKeyPath(key, segments.toArray(), list);
+    }
+
+    private static boolean isDigits(String value) {
+        if (value.isEmpty() || value.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    private final String key;
+    private final Object[] segments;
+    private final boolean list;
+    private final String listKey;
+    private final int listSegment;
+
+    private FastTemplateKeyPath(String key, Object[] segments, boolean list) {
+        this.key = key;
+        this.segments = segments;
+        this.list = list || key.contains("[i]");
+        int listSegment = -1;
+        if (segments != null) {
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i] instanceof Integer && (Integer) segments[i] == LIST_INDEX) {
+                    listSegment = i;
+                    break;
+                }
+            }
+        }
+        this.listSegment = listSegment;
+        this.listKey = listSegment > 0 ? toKey(listSegment, -1) : null;
+    }
+
+    /**
+     * 按前 end 个路径片段拼接变量标识符，[i] 替换为列表下标，列表下标小于0时保留 [i]
+     */
+    private String toKey(int end, int listIndex) {
+        StringBuilder builder = new StringBuilder(key.length() + 8);
+        for (int i = 0; i < end; i++) {
+            Object segment = segments[i];
+            if (segment instanceof String) {
+                if (builder.length() > 0) {
+                    builder.append('.');
+                }
+                builder.append(segment);
+            } else if ((Integer) segment == LIST_INDEX) {
+                builder.append('[').append(listIndex < 0 ? "i" : String.valueOf(listIndex)).append(']');
+            } else {
+                builder.append('[').append(segment).append(']');
+            }
+        }
+        return builder.toString();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 获取指定列表下标的变量标识符，将 [i] 替换为具体下标
+     *
+     * @param listIndex 列表下标，小于0时返回原标识符
+     * @return 变量标识符
+     */
+    public String getKey(int listIndex) {
+        if (listIndex < 0 || !list) {
+            return key;
+        }
+        if (segments != null) {
+            return toKey(segments.length, listIndex);
+        }
+        return key.replace("[i]", "[" + listIndex + "]");
+    }
+
+    /**
+     * 是否包含列表下标 [i]
+     */
+    public boolean isList() {
+        return list;
+    }
+
+    /**
+     * 第一个 [i] 之前的列表变量标识符，例如：list[i].name 返回 list
+     *
+     * @return 列表变量标识符，不包含 [i] 或路径无法解析时返回null
+     */
+    public String getListKey() {
+        return listKey;
+    }
+
+    /**
+     * 从列表变量的值开始按路径取值，即跳过 {@link #getListKey()} 对应的路径
+     *
+     * @param listValue 列表变量的值
+     * @param listIndex 列表下标，用于替换路径中的 [i]
+     * @return 值，路径中途遇到不支持的对象时返回 {@link #UNRESOLVED}
+     */
+    public Object resolveList(Object listValue, int listIndex) {
+        if (listSegment <= 0) {
+            return UNRESOLVED;
+        }
+        return resolve(listValue, listSegment, listIndex);
+    }
+
+    /**
+     * 按路径取值
+     *
+     * @param root      根数据
+     * @param listIndex 列表下标，用于替换路径中的 [i]
+     * @return 值，路径中途遇到不支持的对象时返回 {@link #UNRESOLVED}
+     */
+    public Object resolve(Object root, int listIndex) {
+        if (segments == null) {
+            return UNRESOLVED;
+        }
+        return resolve(root, 0, listIndex);
+    }
+
+    private Object resolve(Object root, int from, int listIndex) {
+        Object current = root;
+        for (int i = from; i < segments.length; i++) {
+            Object segment = segments[i];
+            if (current == null) {
+                return null;
+            }
+            if (segment instanceof String) {
+                if (current instanceof Map) {
+                    current = ((Map<?, ?>) current).get(segment);
+                } else if ("length".equals(segment)) {
+                    if (current instanceof Collection) {
+                        current = ((Collection<?>) current).size();
+                    } else if (current instanceof FastTemplateRows) {
+                        current = ((FastTemplateRows) current).size();
+                    } else if (current.getClass().isArray()) {
+                        current = Array.getLength(current);
+                    } else if (current instanceof CharSequence) {
+                        current = ((CharSequence) current).length();
+                    } else {
+                        return UNRESOLVED;
+                    }
+                } else {
+                    return UNRESOLVED;
+                }
+                continue;
+            }
+            int index = (Integer) segment;
+            if (index == LIST_INDEX) {
+                if (listIndex < 0) {
+                    return UNRESOLVED;
+                }
+                index = listIndex;
+            }
+            if (current instanceof List) {
+                List<?> values = (List<?>) current;
+                current = index < values.size() ? values.get(index) : null;
+            } else if (current.getClass().isArray()) {
+                current = index < Array.getLength(current) ? Array.get(current, index) : null;
+            } else if (current instanceof FastTemplateRows) {
+                current = ((FastTemplateRows) current).get(index);
+            } else {
+                return UNRESOLVED;
+            }
+        }
+        return current;
+    }
+}
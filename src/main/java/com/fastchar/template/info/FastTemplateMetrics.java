@@ -0,0 +1,262 @@
+package com.fastchar.template.info;
+
+import com.fastchar.core.FastHandler;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单次渲染的统计信息，记录各阶段耗时、变量数量、列表展开行数、数据提供者的调用次数及耗时、输出字节数，
+ * 渲染结束后通知 {@link com.fastchar.template.interfaces.IFastTemplateMetricsListener}
+ */
+public class FastTemplateMetrics {
+
+    /**
+     * 获取网络模板或读取模板文件
+     */
+    public static final String PHASE_FETCH = "fetch";
+
+    /**
+     * 等待渲染准入（内存预算），未开启 {@link com.fastchar.template.FastTemplateConfig#isAdmission()} 时不记录，包含在 total 中
+     */
+    public static final String PHASE_ADMISSION = "admission";
+
+    /**
+     * POI解析模板文件
+     */
+    public static final String PHASE_PARSE = "parse";
+
+    /**
+     * 扫描模板中的变量位置，模板已解析过时几乎为0
+     */
+    public static final String PHASE_INDEX = "index";
+
+    /**
+     * 展开列表行
+     */
+    public static final String PHASE_EXPAND = "expand";
+
+    /**
+     * 获取变量值并写入文档
+     */
+    public static final String PHASE_RENDER = "render";
+
+    /**
+     * 将文档写入输出流
+     */
+    public static final String PHASE_WRITE = "write";
+
+    /**
+     * 渲染总耗时，不包含 fetch
+     */
+    public static final String PHASE_TOTAL = "total";
+
+    /**
+     * 获取渲染句柄中的统计信息，不存在时将创建
+     *
+     * @param handler 渲染句柄
+     * @return 统计信息
+     */
+    public static FastTemplateMetrics of(FastHandler handler) {
+        Object metrics = handler.get("__metrics");
+        if (metrics instanceof FastTemplateMetrics) {
+            return (FastTemplateMetrics) metrics;
+        }
+        FastTemplateMetrics templateMetrics = new FastTemplateMetrics();
+        handler.put("__metrics", templateMetrics);
+        return templateMetrics;
+    }
+
+    private volatile String template;
+    private volatile String fileName;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final AtomicLong placeholders = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong dataLookups = new AtomicLong();
+    private final AtomicLong dataLookupNanos = new AtomicLong();
+    private volatile long outputBytes;
+    private volatile Throwable error;
+    private volatile boolean finished;
+    private volatile boolean cached;
+
+    /**
+     * 模板标识
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    public FastTemplateMetrics setTemplate(String template) {
+        this.template = template;
+        return this;
+    }
+
+    /**
+     * 输出的文件名
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public FastTemplateMetrics setFileName(String fileName) {
+        this.fileName = fileName;
+        return this;
+    }
+
+    /**
+     * 累加阶段耗时
+     *
+     * @param phase 阶段名称，例如：{@link #PHASE_PARSE}
+     * @param nanos 耗时，单位：纳秒
+     * @return 当前对象
+     */
+    public FastTemplateMetrics addPhase(String phase, long nanos) {
+        synchronized (phases) {
+            Long value = phases.get(phase);
+            phases.put(phase, value == null ? nanos : value + nanos);
+        }
+        return this;
+    }
+
+    /**
+     * 获取各阶段耗时，单位：纳秒
+     */
+    public Map<String, Long> getPhases() {
+        synchronized (phases) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(phases));
+        }
+    }
+
+    /**
+     * 获取阶段耗时
+     *
+     * @param phase 阶段名称
+     * @return 耗时，单位：纳秒，未记录时返回-1
+     */
+    public long getPhase(String phase) {
+        synchronized (phases) {
+            Long value = phases.get(phase);
+            return value == null ? -1 : value;
+        }
+    }
+
+    public FastTemplateMetrics addPlaceholder() {
+        placeholders.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * 获取变量的取值次数
+     */
+    public long getPlaceholders() {
+        return placeholders.get();
+    }
+
+    public FastTemplateMetrics addRows(long count) {
+        rows.addAndGet(count);
+        return this;
+    }
+
+    /**
+     * 获取列表展开的总行数
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * 记录一次 IFastTemplateData 的调用
+     *
+     * @param nanos 耗时，单位：纳秒
+     * @return 当前对象
+     */
+    public FastTemplateMetrics addDataLookup(long nanos) {
+        dataLookups.incrementAndGet();
+        dataLookupNanos.addAndGet(nanos);
+        return this;
+    }
+
+    /**
+     * 获取 IFastTemplateData 的调用次数
+     */
+    public long getDataLookups() {
+        return dataLookups.get();
+    }
+
+    /**
+     * 获取 IFastTemplateData 的调用总耗时，单位：纳秒
+     */
+    public long getDataLookupNanos() {
+        return dataLookupNanos.get();
+    }
+
+    /**
+     * 输出的字节数
+     */
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public FastTemplateMetrics setOutputBytes(long outputBytes) {
+        this.outputBytes = outputBytes;
+        return this;
+    }
+
+    /**
+     * 渲染失败的异常，渲染成功时返回null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public FastTemplateMetrics setError(Throwable error) {
+        this.error = error;
+        return this;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * 是否已渲染结束
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public FastTemplateMetrics setFinished(boolean finished) {
+        this.finished = finished;
+        return this;
+    }
+
+    /**
+     * 是否直接使用了渲染结果缓存
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public FastTemplateMetrics setCached(boolean cached) {
+        this.cached = cached;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "FastTemplateMetrics{" +
+                "template='" + template + '\'' +
+                ", fileName='" + fileName + '\'' +
+                ", phases=" + getPhases() +
+                ", placeholders=" + placeholders +
+                ", rows=" + rows +
+                ", dataLookups=" + dataLookups +
+                ", dataLookupNanos=" + dataLookupNanos +
+                ", outputBytes=" + outputBytes +
+                ", cached=" + cached +
+                ", error=" + error +
+                '}';
+    }
+}
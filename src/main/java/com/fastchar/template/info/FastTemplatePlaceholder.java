@@ -0,0 +1,116 @@
+package com.fastchar.template.info;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 模板中的变量占位符，格式：${variable}
+ */
+public class FastTemplatePlaceholder {
+    private static final Pattern PLACE_HOLDER_LIST_PATTERN = Pattern.compile("([^${}]*?)\\s*\\[\\s*i\\s*]");
+
+    /**
+     * 按顺序解析文本中的所有占位符，逐字符扫描，每个占位符以其后第一个 } 结束
+     *
+     * @param text 文本
+     * @return 占位符集合，无占位符时返回空集合
+     */
+    public static List<FastTemplatePlaceholder> parse(String text) {
+        if (text == null || !text.contains("${")) {
+            return Collections.emptyList();
+        }
+        List<FastTemplatePlaceholder> placeholders = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int start = text.indexOf("${", from);
+            if (start < 0) {
+                break;
+            }
+            int end = text.indexOf('}', start + 2);
+            if (end < 0) {
+                break;
+            }
+            placeholders.add(new FastTemplatePlaceholder(start, end + 1, text.substring(start + 2, end).trim()));
+            from = end + 1;
+        }
+        return placeholders;
+    }
+
+    private final int start;
+    private final int end;
+    private final String key;
+    private final FastTemplateKeyPath keyPath;
+    private final List<String> listKeys;
+
+    public FastTemplatePlaceholder(int start, int end, String key) {
+        this.start = start;
+        this.end = end;
+        this.key = key;
+        this.keyPath = FastTemplateKeyPath.compile(key);
+        if (keyPath.isList()) {
+            List<String> listKeys = new ArrayList<>();
+            Matcher listMatcher = PLACE_HOLDER_LIST_PATTERN.matcher(key);
+            while (listMatcher.find()) {
+                listKeys.add(listMatcher.group(1));
+            }
+            this.listKeys = listKeys;
+        } else {
+            this.listKeys = Collections.emptyList();
+        }
+    }
+
+    /**
+     * 占位符在文本中的起始位置（$所在位置）
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * 占位符在文本中的结束位置（}之后的位置）
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * 变量标识符
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 获取指定列表下标的变量标识符，将 [i] 替换为具体下标
+     *
+     * @param listIndex 列表下标，小于0时返回原标识符
+     * @return 变量标识符
+     */
+    public String getKey(int listIndex) {
+        return keyPath.getKey(listIndex);
+    }
+
+    /**
+     * 预编译的变量路径
+     */
+    public FastTemplateKeyPath getKeyPath() {
+        return keyPath;
+    }
+
+    /**
+     * 是否为列表变量，例如：${list[i].name}
+     */
+    public boolean isList() {
+        return !listKeys.isEmpty();
+    }
+
+    /**
+     * 列表变量对应的列表标识符，例如：${list[i].name} 返回 list
+     */
+    public List<String> getListKeys() {
+        return listKeys;
+    }
+}
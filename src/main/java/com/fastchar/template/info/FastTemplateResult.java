@@ -0,0 +1,44 @@
+package com.fastchar.template.info;
+
+/**
+ * 模板渲染结果
+ */
+public class FastTemplateResult {
+
+    private final FastTemplateJob job;
+
+    private final Throwable error;
+
+    private final long duration;
+
+    public FastTemplateResult(FastTemplateJob job, Throwable error, long duration) {
+        this.job = job;
+        this.error = error;
+        this.duration = duration;
+    }
+
+    public FastTemplateJob getJob() {
+        return job;
+    }
+
+    /**
+     * 是否渲染成功
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * 渲染失败的异常，成功时为null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * 渲染耗时，单位：毫秒
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,128 @@
+package com.fastchar.template.info;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.interfaces.IFastTemplateRows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 按顺序读取的列表数据，包装 Iterator 或 {@link IFastTemplateRows}，只保留当前行，下标只能递增，
+ * 需要获取列表长度时将一次性读取剩余的全部行
+ */
+public class FastTemplateRows {
+
+    private final Iterator<?> iterator;
+    private final IFastTemplateRows rows;
+    private int index = -1;
+    private Object current;
+    private List<Object> values;
+    private boolean closed;
+
+    public FastTemplateRows(Iterator<?> iterator) {
+        this.iterator = iterator;
+        this.rows = null;
+    }
+
+    public FastTemplateRows(IFastTemplateRows rows) {
+        this.iterator = null;
+        this.rows = rows;
+    }
+
+    /**
+     * 是否存在指定下标的行，将读取至该行
+     *
+     * @param rowIndex 行下标，不可小于已读取的行
+     * @return 是否存在
+     */
+    public synchronized boolean has(int rowIndex) {
+        if (values != null) {
+            return rowIndex < values.size();
+        }
+        if (rowIndex < index) {
+            throw new IllegalStateException("列表数据只能按顺序读取！当前行：" + index + "，读取行：" + rowIndex);
+        }
+        while (index < rowIndex) {
+            if (!moveNext()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取指定下标的行
+     *
+     * @param rowIndex 行下标，不可小于已读取的行
+     * @return 行数据，不存在时返回null
+     */
+    public synchronized Object get(int rowIndex) {
+        if (values != null) {
+            return rowIndex < values.size() ? values.get(rowIndex) : null;
+        }
+        return has(rowIndex) ? current : null;
+    }
+
+    /**
+     * 获取列表长度，将读取剩余的全部行并保存在内存中
+     *
+     * @return 列表长度
+     */
+    public synchronized int size() {
+        if (values == null) {
+            if (index >= 0) {
+                throw new IllegalStateException("列表数据已开始读取，无法获取长度！");
+            }
+            List<Object> values = new ArrayList<>();
+            while (moveNext()) {
+                values.add(current);
+            }
+            current = null;
+            this.values = values;
+        }
+        return values.size();
+    }
+
+    /**
+     * 是否已读取全部行并保存在内存中
+     */
+    public synchronized boolean isLoaded() {
+        return values != null;
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rows != null) {
+                rows.close();
+            } else if (iterator instanceof AutoCloseable) {
+                ((AutoCloseable) iterator).close();
+            }
+        } catch (Exception e) {
+            FastChar.getLogger().error(FastTemplateRows.class, e);
+        }
+    }
+
+    private boolean moveNext() {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (rows != null ? rows.next() : iterator.hasNext()) {
+                current = rows != null ? rows.getRow() : iterator.next();
+                index++;
+                return true;
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        close();
+        return false;
+    }
+}
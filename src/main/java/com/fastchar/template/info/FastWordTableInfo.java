@@ -1,5 +1,6 @@
 package com.fastchar.template.info;
 
+import java.util.Iterator;
 import java.util.List;
 
 public class FastWordTableInfo {
@@ -8,6 +9,8 @@ public class FastWordTableInfo {
 
     private List<List<Object>> values;
 
+    private Iterator<? extends List<?>> valueIterator;
+
     public List<String> getTitles() {
         return titles;
     }
@@ -25,4 +28,34 @@ public class FastWordTableInfo {
         this.values = values;
         return this;
     }
+
+    public Iterator<? extends List<?>> getValueIterator() {
+        return valueIterator;
+    }
+
+    /**
+     * 设置表格数据的迭代器，渲染时逐行读取并写入表格，适用于数据量较大无法一次加载到内存的表格，设置后将忽略values
+     *
+     * @param valueIterator 行数据迭代器，只会被遍历一次
+     * @return 当前对象
+     */
+    public FastWordTableInfo setValueIterator(Iterator<? extends List<?>> valueIterator) {
+        this.valueIterator = valueIterator;
+        return this;
+    }
+
+    /**
+     * 获取表格行数据的迭代器，优先返回valueIterator
+     *
+     * @return 迭代器，未设置数据时返回null
+     */
+    public Iterator<? extends List<?>> iterator() {
+        if (valueIterator != null) {
+            return valueIterator;
+        }
+        if (values != null) {
+            return values.iterator();
+        }
+        return null;
+    }
 }
@@ -0,0 +1,15 @@
+package com.fastchar.template.interfaces;
+
+import com.fastchar.template.info.FastTemplateMetrics;
+
+/**
+ * 渲染统计监听器，每次渲染结束（包括失败）后回调，可通过 FastChar.getOverrides() 或 FastTemplateMonitor.addListener 注册
+ */
+public interface IFastTemplateMetricsListener {
+
+    /**
+     * 渲染结束
+     * @param metrics 本次渲染的统计信息
+     */
+    void onRendered(FastTemplateMetrics metrics);
+}
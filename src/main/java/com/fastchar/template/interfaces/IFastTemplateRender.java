@@ -6,7 +6,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 /**
- * 模板渲染器
+ * 模板渲染器，通过 FastTemplateRenders 按文件类型注册为单例，实现类必须是线程安全的
  * @author 沈建（Janesen）
  * @date 2021/12/6 17:08
  */
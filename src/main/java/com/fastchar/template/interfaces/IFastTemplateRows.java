@@ -0,0 +1,24 @@
+package com.fastchar.template.interfaces;
+
+/**
+ * 按顺序读取的列表行数据源，例如数据库游标，可作为列表变量的值返回，渲染 ${list[i].*} 时逐行读取，渲染结束后自动关闭
+ */
+public interface IFastTemplateRows {
+
+    /**
+     * 移动到下一行
+     * @return 是否存在下一行
+     */
+    boolean next() throws Exception;
+
+    /**
+     * 获取当前行数据，通常为Map
+     * @return 当前行数据
+     */
+    Object getRow() throws Exception;
+
+    /**
+     * 关闭数据源
+     */
+    void close();
+}
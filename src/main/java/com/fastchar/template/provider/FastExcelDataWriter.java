@@ -0,0 +1,353 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.core.FastMapWrap;
+import com.fastchar.template.FastTemplateConfig;
+import com.fastchar.template.info.FastExcelColumnInfo;
+import com.fastchar.template.info.FastTemplateKeyPath;
+import com.fastchar.template.info.FastTemplateRows;
+import com.fastchar.template.interfaces.IFastTemplateRows;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 不使用模板直接导出xlsx表格：按列定义写入表头，再逐行读取数据按窗口写出，数字、日期、布尔值写为对应类型的单元格，
+ * 每列的样式只创建一次，适用于没有复杂格式的大数据量导出；超出工作表最大行数时续写到新的工作表，例如：Sheet1 (2)
+ */
+public class FastExcelDataWriter {
+
+    private final List<FastExcelColumnInfo> columns = new ArrayList<>();
+
+    private String sheetName = "Sheet1";
+
+    private boolean header = true;
+
+    private int windowSize = FastChar.getConfig(FastTemplateConfig.class).getExcelStreamingWindow();
+
+    private boolean compressTempFiles;
+
+    public List<FastExcelColumnInfo> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 添加列
+     *
+     * @param column 列定义
+     * @return 当前对象
+     */
+    public FastExcelDataWriter addColumn(FastExcelColumnInfo column) {
+        this.columns.add(column);
+        return this;
+    }
+
+    /**
+     * 添加列
+     *
+     * @param title 表头标题
+     * @param key   取值路径
+     * @return 当前对象
+     */
+    public FastExcelDataWriter addColumn(String title, String key) {
+        return addColumn(new FastExcelColumnInfo().setTitle(title).setKey(key));
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public FastExcelDataWriter setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+        return this;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    /**
+     * 设置是否写入表头，默认：true
+     */
+    public FastExcelDataWriter setHeader(boolean header) {
+        this.header = header;
+        return this;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * 设置内存中保留的行数，超出后写入临时文件，默认为 {@link FastTemplateConfig#getExcelStreamingWindow()}
+     */
+    public FastExcelDataWriter setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public boolean isCompressTempFiles() {
+        return compressTempFiles;
+    }
+
+    /**
+     * 设置是否压缩临时文件，数据量很大且磁盘空间紧张时开启
+     */
+    public FastExcelDataWriter setCompressTempFiles(boolean compressTempFiles) {
+        this.compressTempFiles = compressTempFiles;
+        return this;
+    }
+
+    /**
+     * 导出数据，输出流写入完毕后不会关闭
+     *
+     * @param rows         行数据，可为 Map（按列的 key 取值）、List 或数组（未设置 key 时按列的位置取值）
+     * @param outputStream 输出流
+     * @return 写入的数据行数
+     */
+    public long write(Iterable<?> rows, OutputStream outputStream) throws Exception {
+        return write(new FastTemplateRows(rows.iterator()), outputStream);
+    }
+
+    /**
+     * 导出数据，逐行读取迭代器，输出流写入完毕后不会关闭
+     *
+     * @param rows         行数据迭代器，只会被遍历一次
+     * @param outputStream 输出流
+     * @return 写入的数据行数
+     */
+    public long write(Iterator<?> rows, OutputStream outputStream) throws Exception {
+        return write(new FastTemplateRows(rows), outputStream);
+    }
+
+    /**
+     * 导出数据，逐行读取数据源，读取结束后关闭数据源，输出流写入完毕后不会关闭
+     *
+     * @param rows         行数据源，例如包装数据库游标
+     * @param outputStream 输出流
+     * @return 写入的数据行数
+     */
+    public long write(IFastTemplateRows rows, OutputStream outputStream) throws Exception {
+        return write(new FastTemplateRows(rows), outputStream);
+    }
+
+    private long write(FastTemplateRows rows, OutputStream outputStream) throws Exception {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(new XSSFWorkbook(), Math.max(windowSize, 1), compressTempFiles);
+        try {
+            ColumnWriter[] writers = new ColumnWriter[columns.size()];
+            for (int i = 0; i < writers.length; i++) {
+                writers[i] = new ColumnWriter(workbook, columns.get(i), i);
+            }
+            CellStyle headerStyle = null;
+            if (header) {
+                headerStyle = workbook.createCellStyle();
+                Font font = workbook.createFont();
+                font.setBold(true);
+                headerStyle.setFont(font);
+            }
+
+            int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows();
+            int sheetCount = 1;
+            Sheet sheet = createSheet(workbook, sheetName, headerStyle);
+            int rowNum = sheet.getLastRowNum() + 1;
+            long count = 0;
+            for (int index = 0; rows.has(index); index++) {
+                Object rowData = rows.get(index);
+                if (rowNum >= maxRows) {
+                    sheet = createSheet(workbook, getSheetName(workbook, ++sheetCount), headerStyle);
+                    rowNum = sheet.getLastRowNum() + 1;
+                }
+                Row row = sheet.createRow(rowNum++);
+                for (ColumnWriter writer : writers) {
+                    writer.write(row, rowData);
+                }
+                count++;
+            }
+            workbook.write(outputStream);
+            outputStream.flush();
+            return count;
+        } finally {
+            rows.close();
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * 创建工作表，设置列宽并写入表头
+     */
+    private Sheet createSheet(Workbook workbook, String name, CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet(name);
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getWidth() > 0) {
+                sheet.setColumnWidth(i, Math.min(columns.get(i).getWidth(), 255) * 256);
+            }
+        }
+        if (headerStyle != null) {
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < columns.size(); i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellStyle(headerStyle);
+                String title = columns.get(i).getTitle();
+                cell.setCellValue(title == null ? "" : title);
+            }
+        }
+        return sheet;
+    }
+
+    /**
+     * 续写工作表的名称，在工作表名称后追加序号，例如：Sheet1 (2)，不超过31个字符
+     */
+    private String getSheetName(Workbook workbook, int number) {
+        String name;
+        do {
+            String suffix = " (" + number++ + ")";
+            name = (sheetName.length() + suffix.length() > 31 ? sheetName.substring(0, 31 - suffix.length()) : sheetName) + suffix;
+        } while (workbook.getSheet(name) != null);
+        return name;
+    }
+
+    /**
+     * 单列的写入器，样式在首次使用时创建并被该列所有单元格共用
+     */
+    private static final class ColumnWriter {
+        private static final Set<String> TRUE_VALUES = new HashSet<>(Arrays.asList("true", "1", "y", "yes", "是"));
+        private static final Set<String> FALSE_VALUES = new HashSet<>(Arrays.asList("false", "0", "n", "no", "否"));
+        private final Workbook workbook;
+        private final FastExcelColumnInfo column;
+        private final int columnIndex;
+        private CellStyle style;
+        private CellStyle dateStyle;
+        private Map<?, ?> wrappedRow;
+        private FastMapWrap mapWrap;
+
+        private ColumnWriter(Workbook workbook, FastExcelColumnInfo column, int columnIndex) {
+            this.workbook = workbook;
+            this.column = column;
+            this.columnIndex = columnIndex;
+            if (column.getFormat() != null && !FastExcelColumnInfo.TYPE_DATE.equals(column.getType())) {
+                style = newStyle(column.getFormat());
+            }
+        }
+
+        private CellStyle newStyle(String format) {
+            CellStyle cellStyle = workbook.createCellStyle();
+            cellStyle.setDataFormat(workbook.createDataFormat().getFormat(format));
+            return cellStyle;
+        }
+
+        private CellStyle getDateStyle() {
+            if (dateStyle == null) {
+                dateStyle = newStyle(column.getFormat() != null ? column.getFormat() : FastChar.getConstant().getDateFormat());
+            }
+            return dateStyle;
+        }
+
+        private Object getValue(Object rowData) {
+            FastTemplateKeyPath keyPath = column.getKeyPath();
+            if (keyPath == null) {
+                if (rowData instanceof List) {
+                    List<?> values = (List<?>) rowData;
+                    return columnIndex < values.size() ? values.get(columnIndex) : null;
+                }
+                if (rowData != null && rowData.getClass().isArray()) {
+                    return columnIndex < Array.getLength(rowData) ? Array.get(rowData, columnIndex) : null;
+                }
+                return null;
+            }
+            Object value = keyPath.resolve(rowData, -1);
+            if (value == FastTemplateKeyPath.UNRESOLVED) {
+                if (!(rowData instanceof Map)) {
+                    return null;
+                }
+                if (wrappedRow != rowData) {
+                    wrappedRow = (Map<?, ?>) rowData;
+                    mapWrap = FastMapWrap.newInstance(wrappedRow);
+                }
+                return mapWrap.get("${" + keyPath.getKey() + "}");
+            }
+            return value;
+        }
+
+        private void write(Row row, Object rowData) {
+            Object value = getValue(rowData);
+            if (value == null) {
+                return;
+            }
+            Cell cell = row.createCell(columnIndex);
+            String type = column.getType();
+            if (FastExcelColumnInfo.TYPE_STRING.equals(type)) {
+                setString(cell, value.toString());
+            } else if (FastExcelColumnInfo.TYPE_NUMBER.equals(type) && value instanceof CharSequence) {
+                //超过15位有效数字的字符串（例如订单号）转换为double将丢失精度，保留为文本
+                try {
+                    BigDecimal number = new BigDecimal(value.toString().trim()).stripTrailingZeros();
+                    if (FastExcelTemplateRender.isExactNumber(number)) {
+                        setNumber(cell, number.doubleValue());
+                    } else {
+                        setString(cell, value.toString());
+                    }
+                } catch (NumberFormatException e) {
+                    setString(cell, value.toString());
+                }
+            } else if (FastExcelColumnInfo.TYPE_DATE.equals(type) && value instanceof Number) {
+                cell.setCellValue(new Date(((Number) value).longValue()));
+                cell.setCellStyle(getDateStyle());
+            } else if (FastExcelColumnInfo.TYPE_BOOLEAN.equals(type) && value instanceof CharSequence) {
+                String text = value.toString().trim().toLowerCase();
+                if (TRUE_VALUES.contains(text)) {
+                    cell.setCellValue(true);
+                } else if (FALSE_VALUES.contains(text)) {
+                    cell.setCellValue(false);
+                } else {
+                    setString(cell, value.toString());
+                }
+            } else if (value instanceof Number) {
+                Number number = (Number) value;
+                if (FastExcelTemplateRender.isExactNumber(number)) {
+                    setNumber(cell, value instanceof Float ? Double.parseDouble(value.toString()) : number.doubleValue());
+                } else {
+                    setString(cell, value.toString());
+                }
+            } else if (value instanceof Date) {
+                cell.setCellValue((Date) value);
+                cell.setCellStyle(getDateStyle());
+            } else if (value instanceof Calendar) {
+                cell.setCellValue((Calendar) value);
+                cell.setCellStyle(getDateStyle());
+            } else if (value instanceof LocalDateTime) {
+                cell.setCellValue((LocalDateTime) value);
+                cell.setCellStyle(getDateStyle());
+            } else if (value instanceof LocalDate) {
+                cell.setCellValue((LocalDate) value);
+                cell.setCellStyle(getDateStyle());
+            } else if (value instanceof Boolean) {
+                cell.setCellValue((Boolean) value);
+            } else {
+                setString(cell, value.toString());
+            }
+        }
+
+        private void setNumber(Cell cell, double value) {
+            cell.setCellValue(value);
+            if (style != null) {
+                cell.setCellStyle(style);
+            }
+        }
+
+        private void setString(Cell cell, String value) {
+            cell.setCellValue(value);
+            if (style != null) {
+                cell.setCellStyle(style);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.template.info.FastTemplatePlaceholder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Excel模板的变量位置索引，记录每个工作表中包含变量的单元格及列表行，解析后只读
+ */
+final class FastExcelTemplateIndex {
+
+    private final List<SheetIndex> sheets = new ArrayList<>();
+
+    List<SheetIndex> getSheets() {
+        return sheets;
+    }
+
+    /**
+     * 是否所有工作表都不包含变量
+     */
+    boolean isEmpty() {
+        for (SheetIndex sheet : sheets) {
+            if (!sheet.rows.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static final class SheetIndex {
+        private final TreeMap<Integer, List<CellIndex>> rows = new TreeMap<>();
+        private final List<Integer> listRows = new ArrayList<>();
+
+        /**
+         * 包含变量的行，按行号升序
+         */
+        TreeMap<Integer, List<CellIndex>> getRows() {
+            return rows;
+        }
+
+        /**
+         * 包含列表变量的行号，升序
+         */
+        List<Integer> getListRows() {
+            return listRows;
+        }
+
+        void addCell(CellIndex cellIndex) {
+            List<CellIndex> cells = rows.get(cellIndex.row);
+            if (cells == null) {
+                cells = new ArrayList<>();
+                rows.put(cellIndex.row, cells);
+            }
+            cells.add(cellIndex);
+            if (cellIndex.list && (listRows.isEmpty() || listRows.get(listRows.size() - 1) != cellIndex.row)) {
+                listRows.add(cellIndex.row);
+            }
+        }
+    }
+
+    static final class CellIndex {
+        private final int row;
+        private final int column;
+        private final String text;
+        private final List<FastTemplatePlaceholder> placeholders;
+        private final boolean list;
+        private final boolean single;
+
+        CellIndex(int row, int column, String text, List<FastTemplatePlaceholder> placeholders) {
+            this.row = row;
+            this.column = column;
+            this.text = text;
+            this.placeholders = placeholders;
+            boolean list = false;
+            for (FastTemplatePlaceholder placeholder : placeholders) {
+                list = list || placeholder.isList();
+            }
+            this.list = list;
+            this.single = placeholders.size() == 1 && placeholders.get(0).getStart() == 0 && placeholders.get(0).getEnd() == text.length();
+        }
+
+        int getRow() {
+            return row;
+        }
+
+        int getColumn() {
+            return column;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        List<FastTemplatePlaceholder> getPlaceholders() {
+            return placeholders;
+        }
+
+        boolean isList() {
+            return list;
+        }
+
+        /**
+         * 单元格内容是否只有一个变量，例如：${price}，此时可按变量值的类型写入单元格
+         */
+        boolean isSingle() {
+            return single;
+        }
+    }
+}
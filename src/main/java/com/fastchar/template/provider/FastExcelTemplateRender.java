@@ -2,21 +2,46 @@ package com.fastchar.template.provider;
 
 import com.fastchar.core.FastChar;
 import com.fastchar.core.FastHandler;
+import com.fastchar.template.FastTemplateAdmission;
+import com.fastchar.template.FastTemplateConfig;
+import com.fastchar.template.FastTemplateContext;
+import com.fastchar.template.FastTemplateExecutors;
 import com.fastchar.template.FastTemplateHelper;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.info.FastTemplateMetrics;
+import com.fastchar.template.info.FastTemplatePlaceholder;
 import com.fastchar.template.interfaces.IFastTemplateRender;
-import com.fastchar.utils.FastDateUtils;
 import com.fastchar.utils.FastFileUtils;
 import com.fastchar.utils.FastNumberUtils;
-import com.fastchar.utils.FastStringUtils;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.*;
+import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.PaneInformation;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Excel文件模板渲染器
@@ -25,186 +50,1154 @@ import java.util.regex.Pattern;
  * @date 2021/12/6 17:37
  */
 public class FastExcelTemplateRender implements IFastTemplateRender {
+    /**
+     * double 可精确表示的最大整数，超出的整数按文本写入，避免丢失精度（例如：19位的订单号）
+     */
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
     @Override
     public void onRender(FastHandler handler, InputStream templateInputStream, OutputStream newFileOutStream) {
-        if (!FastFileUtils.isExcelFile(handler.getString("__fileName"))) {
-            return;
-        }
         handler.setCode(0);
         Workbook workbook = null;
         try {
-            workbook = WorkbookFactory.create(templateInputStream);
-            wrapList(handler, workbook);
-            renderNormal(handler, workbook);
-            workbook.write(newFileOutStream);
+            FastTemplateMetrics metrics = FastTemplateMetrics.of(handler);
+            long beginTime = System.nanoTime();
+            boolean zip = isZip(handler);
+            FastExcelTemplateIndex templateIndex = scanTemplateIndex(handler);
+            if (templateIndex != null) {
+                metrics.addPhase(FastTemplateMetrics.PHASE_INDEX, System.nanoTime() - beginTime);
+                if (templateIndex.isEmpty() && !zip) {
+                    //模板中没有变量，无需创建工作簿，直接输出模板内容
+                    beginTime = System.nanoTime();
+                    copy(templateInputStream, newFileOutStream);
+                    metrics.addPhase(FastTemplateMetrics.PHASE_WRITE, System.nanoTime() - beginTime);
+                    return;
+                }
+            }
+
+            FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+            //输出zip时按行数拆分为多个文件，需使用流式渲染
+            boolean streaming = templateConfig.isExcelStreaming() || zip;
+            beginTime = System.nanoTime();
+            //流式渲染逐行写出，不缓存渲染结果进行合并
+            FastTemplatePassthrough passthrough = streaming ? null : FastTemplatePassthrough.of(handler);
+            workbook = WorkbookFactory.create(passthrough != null ? passthrough.newInputStream() : templateInputStream);
+            metrics.addPhase(FastTemplateMetrics.PHASE_PARSE, System.nanoTime() - beginTime);
+
+            if (templateIndex == null) {
+                beginTime = System.nanoTime();
+                templateIndex = getTemplateIndex(handler, workbook);
+                metrics.addPhase(FastTemplateMetrics.PHASE_INDEX, System.nanoTime() - beginTime);
+            }
+
+            if (zip && !(workbook instanceof XSSFWorkbook)) {
+                throw new IllegalArgumentException("拆分为多个文件仅支持xlsx模板！");
+            }
+            if (streaming && workbook instanceof XSSFWorkbook) {
+                renderStreaming(handler, (XSSFWorkbook) workbook, templateIndex, templateConfig.getExcelStreamingWindow(), newFileOutStream);
+                return;
+            }
+            beginTime = System.nanoTime();
+            List<Map<Integer, Integer>> listSizes = wrapList(handler, workbook, templateIndex);
+            metrics.addPhase(FastTemplateMetrics.PHASE_EXPAND, System.nanoTime() - beginTime);
+
+            beginTime = System.nanoTime();
+            renderNormal(handler, workbook, templateIndex, listSizes);
+            metrics.addPhase(FastTemplateMetrics.PHASE_RENDER, System.nanoTime() - beginTime);
+
+            beginTime = System.nanoTime();
+            if (passthrough != null) {
+                passthrough.write((XSSFWorkbook) workbook, newFileOutStream);
+            } else {
+                workbook.write(newFileOutStream);
+            }
+            metrics.addPhase(FastTemplateMetrics.PHASE_WRITE, System.nanoTime() - beginTime);
         } catch (Exception e) {
             FastChar.getLogger().error(this.getClass(), e);
+            handler.put("__exception", e);
         } finally {
+            FastFileUtils.closeQuietly(workbook);
             FastFileUtils.closeQuietly(templateInputStream);
             FastFileUtils.closeQuietly(newFileOutStream);
         }
     }
 
+    /**
+     * 获取模板的变量位置索引，模板已解析过时直接复用，未解析过的xlsx模板使用 {@link FastExcelTemplateScanner} 扫描，
+     * 无法扫描时返回null，由 {@link #getTemplateIndex(FastHandler, Workbook)} 在工作簿中解析
+     */
+    private FastExcelTemplateIndex scanTemplateIndex(FastHandler handler) throws Exception {
+        Object template = handler.get("__template");
+        if (!(template instanceof FastCompiledTemplate)) {
+            return null;
+        }
+        FastCompiledTemplate compiledTemplate = (FastCompiledTemplate) template;
+        FastExcelTemplateIndex templateIndex = compiledTemplate.getIndex(FastExcelTemplateIndex.class);
+        if (templateIndex != null) {
+            return templateIndex;
+        }
+        if (FileMagic.valueOf(compiledTemplate.getContent()) != FileMagic.OOXML) {
+            return null;
+        }
+        templateIndex = FastExcelTemplateScanner.scan(compiledTemplate.newInputStream());
+        compiledTemplate.setIndex(templateIndex);
+        return templateIndex;
+    }
+
+    private void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, length);
+        }
+    }
 
-    private void wrapList(FastHandler handler, Workbook workbook) {
-        String regStr = "\\$\\{(.*)}";
-        Pattern compile = Pattern.compile(regStr);
+    /**
+     * 获取模板的变量位置索引，模板已解析过时直接复用
+     */
+    private FastExcelTemplateIndex getTemplateIndex(FastHandler handler, Workbook workbook) {
+        FastCompiledTemplate compiledTemplate = null;
+        Object template = handler.get("__template");
+        if (template instanceof FastCompiledTemplate) {
+            compiledTemplate = (FastCompiledTemplate) template;
+            FastExcelTemplateIndex templateIndex = compiledTemplate.getIndex(FastExcelTemplateIndex.class);
+            if (templateIndex != null) {
+                return templateIndex;
+            }
+        }
+        FastExcelTemplateIndex templateIndex = new FastExcelTemplateIndex();
+        int sheetCount = workbook.getNumberOfSheets();
+        for (int i = 0; i < sheetCount; i++) {
+            FastExcelTemplateIndex.SheetIndex sheetIndex = new FastExcelTemplateIndex.SheetIndex();
+            for (Row row : workbook.getSheetAt(i)) {
+                for (Cell cell : row) {
+                    //仅字符串单元格可能包含变量，避免转换数字、日期等单元格的值
+                    CellType cellType = cell.getCellType();
+                    if (cellType == CellType.FORMULA) {
+                        cellType = cell.getCachedFormulaResultType();
+                    }
+                    if (cellType != CellType.STRING) {
+                        continue;
+                    }
+                    String text = cell.getStringCellValue();
+                    List<FastTemplatePlaceholder> placeholders = FastTemplatePlaceholder.parse(text);
+                    if (!placeholders.isEmpty()) {
+                        sheetIndex.addCell(new FastExcelTemplateIndex.CellIndex(row.getRowNum(), cell.getColumnIndex(), text, placeholders));
+                    }
+                }
+            }
+            templateIndex.getSheets().add(sheetIndex);
+        }
+        if (compiledTemplate != null) {
+            compiledTemplate.setIndex(templateIndex);
+        }
+        return templateIndex;
+    }
 
 
+    /**
+     * 流式渲染：列表行之前的内容在原模板中直接渲染，列表行及其后的行从模板中摘出，再通过SXSSFWorkbook按窗口逐行写出；
+     * 写入的行数达到 {@link FastTemplateConfig#getExcelSplitRows()} 或工作表最大行数时拆分到新的工作表并重复表头行，
+     * 输出文件为zip时拆分为多个xlsx文件，每个文件写完后立即写入zip
+     */
+    private void renderStreaming(FastHandler handler, XSSFWorkbook workbook, FastExcelTemplateIndex templateIndex,
+                                 int windowSize, OutputStream outputStream) throws Exception {
+        FastTemplateMetrics metrics = FastTemplateMetrics.of(handler);
+        long beginTime = System.nanoTime();
+        CellWriter cellWriter = new CellWriter(workbook);
+        XSSFEvaluationWorkbook formulaWorkbook = XSSFEvaluationWorkbook.create(workbook);
+        List<SheetTail> sheetTails = new ArrayList<>();
+        int lastTailSheet = -1;
         int sheetCount = workbook.getNumberOfSheets();
         for (int i = 0; i < sheetCount; i++) {
-            Sheet sheet = workbook.getSheetAt(i);
-            int rowCount = sheet.getPhysicalNumberOfRows();
-            for (int rowNum = 0; rowNum < rowCount; rowNum++) {
-                Row dataRow = sheet.getRow(rowNum);
-                if (dataRow == null) {
+            SheetTail sheetTail = extractTail(handler, cellWriter, formulaWorkbook, workbook.getSheetAt(i), templateIndex.getSheets().get(i));
+            sheetTails.add(sheetTail);
+            if (!sheetTail.tails.isEmpty()) {
+                lastTailSheet = i;
+            }
+        }
+
+        SXSSFWorkbook streamWorkbook = new SXSSFWorkbook(workbook, Math.max(windowSize, 1));
+        //拆分出的工作表将插入到原工作表之后，先记录原工作表
+        List<Sheet> streamSheets = new ArrayList<>();
+        for (int i = 0; i < sheetCount; i++) {
+            streamSheets.add(streamWorkbook.getSheetAt(i));
+        }
+        SplitWriter splitWriter = new SplitWriter(handler, templateIndex, streamWorkbook, cellWriter, windowSize,
+                isZip(handler) ? new ZipOutputStream(outputStream) : null);
+        try {
+            for (int i = 0; i < sheetCount; i++) {
+                SheetTail sheetTail = sheetTails.get(i);
+                if (sheetTail.tails.isEmpty()) {
                     continue;
                 }
+                splitWriter.begin(i, streamSheets.get(i), sheetTail, i == lastTailSheet);
+                writeTails(handler, splitWriter, sheetTail);
+                splitWriter.end();
+            }
+            metrics.addPhase(FastTemplateMetrics.PHASE_RENDER, System.nanoTime() - beginTime);
 
-                int maxRowData = 0;
-                int maxCell = 0;
-                CellStyle parentStyle = null;
-
-                Map<Integer, String> cellPatternMap = new HashMap<>();
-
-                int cellCount = dataRow.getLastCellNum();
-                for (int cellNum = 0; cellNum < cellCount; cellNum++) {
-                    maxCell = Math.max(cellNum, maxCell);
-
-                    Cell cell = dataRow.getCell(cellNum);
-                    Object value = getCellValue(workbook, cell);
-                    if (value != null) {
-                        String text = value.toString();
-                        Matcher matcher = compile.matcher(text);
-
-                        boolean hasList = false;
-                        while (matcher.find()) {
-                            if (matcher.group(1).contains("[i]")) {
-                                String listRegStr = "([^${}]*)\\[i]";
-                                Pattern listCompile = Pattern.compile(listRegStr);
-                                Matcher listMatcher = listCompile.matcher(matcher.group(1));
-                                while (listMatcher.find()) {
-                                    maxRowData = Math.max(maxRowData, FastNumberUtils.formatToInt(FastTemplateHelper.renderData(handler, listMatcher.group(1) + ".length")));
-                                }
-                                parentStyle = cell.getCellStyle();
-                                hasList = true;
-                            }
-                        }
-                        if (hasList) {
-                            cell.setCellValue(text.replace("[i]", "[0]"));
-                            cellPatternMap.put(cellNum, text);
-                        }
-                    }
+            beginTime = System.nanoTime();
+            splitWriter.finish(outputStream);
+            metrics.addPhase(FastTemplateMetrics.PHASE_WRITE, System.nanoTime() - beginTime);
+        } finally {
+            splitWriter.dispose();
+            streamWorkbook.dispose();
+        }
+    }
+
+    /**
+     * 渲染列表行之前的内容，并将列表行及其后的行从工作表中摘出，表头行按渲染后的值记录，用于拆分时重复表头；公式单元格记录解析后的公式，写出时按行偏移
+     */
+    private SheetTail extractTail(FastHandler handler, CellWriter cellWriter, XSSFEvaluationWorkbook formulaWorkbook,
+                                  Sheet sheet, FastExcelTemplateIndex.SheetIndex sheetIndex) {
+        SheetTail sheetTail = new SheetTail();
+        sheetTail.sheet = sheet;
+        sheetTail.sheetNum = sheet.getWorkbook().getSheetIndex(sheet);
+        sheetTail.formulaWorkbook = formulaWorkbook;
+        sheetTail.listRowNum = sheetIndex.getListRows().isEmpty() ? -1 : sheetIndex.getListRows().get(0);
+        sheetTail.lastRowNum = sheet.getLastRowNum();
+        int listRowNum = sheetTail.listRowNum;
+        if (listRowNum >= 0) {
+            for (int rowNum = listRowNum; rowNum <= sheetTail.lastRowNum; rowNum++) {
+                Row row = sheet.getRow(rowNum);
+                if (row == null) {
+                    continue;
+                }
+                RowTemplate rowTemplate = toRowTemplate(handler, sheetTail, sheetIndex, row);
+                sheetTail.tails.add(rowTemplate);
+                for (CellTemplate cellTemplate : rowTemplate.cells) {
+                    sheetTail.lastColumn = Math.max(sheetTail.lastColumn, cellTemplate.column);
                 }
+                sheet.removeRow(row);
+            }
+            for (int regionIndex = sheet.getNumMergedRegions() - 1; regionIndex >= 0; regionIndex--) {
+                CellRangeAddress region = sheet.getMergedRegion(regionIndex);
+                if (region.getFirstRow() >= listRowNum) {
+                    sheetTail.regions.add(0, region);
+                    sheet.removeMergedRegion(regionIndex);
+                } else if (region.getLastRow() < listRowNum) {
+                    sheetTail.headRegions.add(region);
+                }
+            }
+        }
 
-                int lastInsertRow = rowNum + 1;
-                for (int newRowNum = 1; newRowNum < maxRowData; newRowNum++) {
-                    sheet.shiftRows(lastInsertRow, lastInsertRow + 1, 1);
-                    Row row = sheet.getRow(lastInsertRow);
-                    if (row == null) {
-                        row = sheet.createRow(lastInsertRow);
-                    }
+        Map<Integer, List<FastExcelTemplateIndex.CellIndex>> headRows = listRowNum >= 0 ? sheetIndex.getRows().headMap(listRowNum) : sheetIndex.getRows();
+        for (List<FastExcelTemplateIndex.CellIndex> cells : headRows.values()) {
+            for (FastExcelTemplateIndex.CellIndex cellIndex : cells) {
+                Cell cell = sheet.getRow(cellIndex.getRow()).getCell(cellIndex.getColumn());
+                cellWriter.write(cell, cellWriter.resolve(handler, cellIndex, -1));
+            }
+        }
 
-                    for (int cellNum = 0; cellNum <= maxCell; cellNum++) {
-                        Cell cell = row.getCell(cellNum);
-                        if (cell == null) {
-                            cell = row.createCell(cellNum);
-                        }
-                        if (parentStyle != null) {
-                            cell.setCellStyle(parentStyle);
-                        }
+        FastExcelTemplateIndex.SheetIndex headIndex = new FastExcelTemplateIndex.SheetIndex();
+        for (int rowNum = 0; rowNum < listRowNum; rowNum++) {
+            Row row = sheet.getRow(rowNum);
+            if (row == null) {
+                continue;
+            }
+            RowTemplate rowTemplate = toRowTemplate(handler, sheetTail, headIndex, row);
+            sheetTail.heads.add(rowTemplate);
+            for (CellTemplate cellTemplate : rowTemplate.cells) {
+                sheetTail.lastColumn = Math.max(sheetTail.lastColumn, cellTemplate.column);
+            }
+        }
+        return sheetTail;
+    }
 
-                        String cellPattern = cellPatternMap.get(cellNum);
-                        if (FastStringUtils.isEmpty(cellPattern)) {
-                            cellPattern = "";
-                        }
-                        cell.setCellValue(cellPattern.replace("[i]", "[" + newRowNum + "]"));
+    /**
+     * 按行写出列表行及其后的行，同一行内的合并单元格随每个展开行复制，跨行的合并单元格拆分到不同工作表时不再合并
+     */
+    private void writeTails(FastHandler handler, SplitWriter splitWriter, SheetTail sheetTail) throws Exception {
+        FastTemplateMetrics metrics = FastTemplateMetrics.of(handler);
+        Map<Integer, List<CellRangeAddress>> rowRegions = new HashMap<>();
+        List<CellRangeAddress> spanRegions = new ArrayList<>();
+        for (CellRangeAddress region : sheetTail.regions) {
+            if (region.getFirstRow() != region.getLastRow()) {
+                spanRegions.add(region);
+                continue;
+            }
+            List<CellRangeAddress> regions = rowRegions.get(region.getFirstRow());
+            if (regions == null) {
+                regions = new ArrayList<>();
+                rowRegions.put(region.getFirstRow(), regions);
+            }
+            regions.add(region);
+        }
+
+        Map<Integer, RowSpan> rowSpans = new HashMap<>();
+        int previousRowNum = sheetTail.listRowNum - 1;
+        for (RowTemplate tail : sheetTail.tails) {
+            //保留模板中的空行
+            splitWriter.skip(tail.rowNum - previousRowNum - 1);
+            previousRowNum = tail.rowNum;
+            RowSpan rowSpan = new RowSpan();
+            Sheet chunkSheet = null;
+            int chunkRowNum = 0;
+            List<CellRangeAddress> regions = rowRegions.get(tail.rowNum);
+            int repeat = tail.listSize > 0 ? tail.listSize : 1;
+            //按顺序读取的行数据源无法预知行数，逐行读取直到数据源结束
+            for (int index = 0; index < repeat || hasListRow(handler, tail.rowsKeys, index); index++) {
+                Row row = splitWriter.nextRow();
+                if (tail.rowNum == sheetTail.listRowNum) {
+                    splitWriter.countListRow();
+                }
+                if (rowSpan.count == 0) {
+                    rowSpan.firstSheet = row.getSheet();
+                    rowSpan.firstRowNum = row.getRowNum();
+                }
+                rowSpan.lastSheet = row.getSheet();
+                rowSpan.lastRowNum = row.getRowNum();
+                rowSpan.count++;
+                if (row.getSheet() != chunkSheet) {
+                    chunkSheet = row.getSheet();
+                    chunkRowNum = row.getRowNum();
+                }
+                if (tail.height >= 0) {
+                    row.setHeight(tail.height);
+                }
+                CellWriter cellWriter = splitWriter.getCellWriter();
+                for (CellTemplate cellTemplate : tail.cells) {
+                    Cell cell = row.createCell(cellTemplate.column);
+                    if (cellTemplate.style != null) {
+                        cell.setCellStyle(splitWriter.getStyle(cellTemplate.style));
                     }
+                    if (cellTemplate.cellIndex != null && (cellTemplate.cellIndex.isList() || index == 0)) {
+                        cellWriter.write(cell, cellWriter.resolve(handler, cellTemplate.cellIndex, index));
+                    } else if (cellTemplate.formula != null) {
+                        //与非流式渲染一致：列表行的公式复制到每个展开行，其后行的公式随展开的行数下移
+                        cell.setCellFormula(shiftTailFormula(sheetTail, tail.rowNum, cellTemplate.formula,
+                                chunkRowNum - tail.rowNum, row.getRowNum() - chunkRowNum));
+                    } else if (index == 0) {
+                        cellWriter.write(cell, cellTemplate.value);
+                    }
+                }
+                if (regions != null) {
+                    //复制的合并区域分别位于不同行，不会重叠，无需校验
+                    for (CellRangeAddress region : regions) {
+                        row.getSheet().addMergedRegionUnsafe(new CellRangeAddress(row.getRowNum(), row.getRowNum(),
+                                region.getFirstColumn(), region.getLastColumn()));
+                    }
+                }
+            }
+            if (tail.listSize > 0 || !tail.rowsKeys.isEmpty()) {
+                metrics.addRows(rowSpan.count);
+            }
+            rowSpans.put(tail.rowNum, rowSpan);
+        }
 
-                    lastInsertRow = lastInsertRow + 1;
+        for (CellRangeAddress region : spanRegions) {
+            RowSpan first = rowSpans.get(region.getFirstRow());
+            RowSpan last = rowSpans.get(region.getLastRow());
+            if (first == null || last == null || first.firstSheet != last.lastSheet) {
+                continue;
+            }
+            first.firstSheet.addMergedRegion(new CellRangeAddress(first.firstRowNum, last.lastRowNum,
+                    region.getFirstColumn(), region.getLastColumn()));
+        }
+    }
+
+    /**
+     * 输出的文件名是否为zip，此时按行数拆分为多个xlsx文件
+     */
+    private boolean isZip(FastHandler handler) {
+        Object fileName = handler.get("__fileName");
+        return fileName != null && fileName.toString().toLowerCase().endsWith(".zip");
+    }
+
+    /**
+     * 计算摘出行的公式在写出位置的值：引用列表行之后的行按 shiftRows 下移（同 Sheet.shiftRows），列表行的第 copyRows 个复制行的相对引用随行偏移；
+     * 拆分到新工作表后按新工作表中的位置计算，引用之前工作表中的行时不再准确
+     *
+     * @param rowNum    公式所在的模板行号
+     * @param shiftRows 列表展开后模板行下移的行数
+     * @param copyRows  当前行相对于模板行在当前工作表中首次写出位置的行数
+     */
+    private String shiftTailFormula(SheetTail sheetTail, int rowNum, Ptg[] formula, int shiftRows, int copyRows) {
+        Ptg[] ptgs = new Ptg[formula.length];
+        for (int i = 0; i < formula.length; i++) {
+            ptgs[i] = formula[i].copy();
+        }
+        String sheetName = sheetTail.sheet.getSheetName();
+        if (shiftRows > 0 && sheetTail.lastRowNum > sheetTail.listRowNum) {
+            FormulaShifter.createForRowShift(sheetTail.sheetNum, sheetName, sheetTail.listRowNum + 1, sheetTail.lastRowNum, shiftRows,
+                    SpreadsheetVersion.EXCEL2007).adjustFormula(ptgs, sheetTail.sheetNum);
+        }
+        if (copyRows > 0) {
+            FormulaShifter.createForRowCopy(sheetTail.sheetNum, sheetName, rowNum, rowNum, copyRows,
+                    SpreadsheetVersion.EXCEL2007).adjustFormula(ptgs, sheetTail.sheetNum);
+        }
+        return FormulaRenderer.toFormulaString(sheetTail.formulaWorkbook, ptgs);
+    }
+
+    /**
+     * 列表展开后更新表头行中的公式，引用列表行之后的行随展开的行数下移，与非流式渲染一致
+     *
+     * @param headSheet 表头行所在的工作表，表头行须在 XSSF 中（未按窗口写出）
+     */
+    private void shiftHeadFormulas(SheetTail sheetTail, Sheet headSheet, int shiftRows) {
+        if (shiftRows <= 0) {
+            return;
+        }
+        for (RowTemplate head : sheetTail.heads) {
+            for (CellTemplate cellTemplate : head.cells) {
+                if (cellTemplate.formula != null) {
+                    headSheet.getRow(head.rowNum).getCell(cellTemplate.column)
+                            .setCellFormula(shiftTailFormula(sheetTail, head.rowNum, cellTemplate.formula, shiftRows, 0));
                 }
-                if (maxRowData > 0) {
-                    rowNum = 0;
-                    rowCount = sheet.getPhysicalNumberOfRows();
+            }
+        }
+    }
+
+    private RowTemplate toRowTemplate(FastHandler handler, SheetTail sheetTail, FastExcelTemplateIndex.SheetIndex sheetIndex, Row row) {
+        RowTemplate rowTemplate = new RowTemplate();
+        rowTemplate.rowNum = row.getRowNum();
+        if (row.getHeight() != row.getSheet().getDefaultRowHeight()) {
+            rowTemplate.height = row.getHeight();
+        }
+        Map<Integer, FastExcelTemplateIndex.CellIndex> cellIndexMap = new HashMap<>();
+        List<FastExcelTemplateIndex.CellIndex> cellIndexes = sheetIndex.getRows().get(row.getRowNum());
+        if (cellIndexes != null) {
+            for (FastExcelTemplateIndex.CellIndex cellIndex : cellIndexes) {
+                cellIndexMap.put(cellIndex.getColumn(), cellIndex);
+                if (!cellIndex.isList()) {
+                    continue;
                 }
+                for (FastTemplatePlaceholder placeholder : cellIndex.getPlaceholders()) {
+                    for (String listKey : placeholder.getListKeys()) {
+                        int listSize = FastTemplateContext.of(handler).getListSize(listKey);
+                        if (listSize < 0) {
+                            rowTemplate.rowsKeys.add(listKey);
+                        } else {
+                            rowTemplate.listSize = Math.max(rowTemplate.listSize, listSize);
+                        }
+                    }
+                }
+            }
+        }
+        for (Cell cell : row) {
+            CellTemplate cellTemplate = new CellTemplate();
+            cellTemplate.column = cell.getColumnIndex();
+            cellTemplate.style = cell.getCellStyle();
+            cellTemplate.cellIndex = cellIndexMap.get(cell.getColumnIndex());
+            if (cellTemplate.cellIndex == null && cell.getCellType() == CellType.FORMULA) {
+                cellTemplate.formula = parseFormula(sheetTail.formulaWorkbook, sheetTail.sheetNum, cell);
             }
+            if (cellTemplate.formula == null) {
+                cellTemplate.value = getCellValue(cell);
+            }
+            rowTemplate.cells.add(cellTemplate);
+        }
+        return rowTemplate;
+    }
+
+    private boolean hasListRow(FastHandler handler, List<String> rowsKeys, int rowIndex) {
+        boolean hasRow = false;
+        for (String rowsKey : rowsKeys) {
+            //每个数据源都需读取至该行，保证同一行的变量取到相同下标的数据
+            hasRow = FastTemplateContext.of(handler).hasListRow(rowsKey, rowIndex) || hasRow;
         }
+        return hasRow;
     }
 
-    private void renderNormal(FastHandler handler, Workbook workbook) {
+    private int getListSize(FastHandler handler, FastExcelTemplateIndex.CellIndex cellIndex) {
+        int maxRowData = 0;
+        for (FastTemplatePlaceholder placeholder : cellIndex.getPlaceholders()) {
+            for (String listKey : placeholder.getListKeys()) {
+                maxRowData = Math.max(maxRowData, FastNumberUtils.formatToInt(FastTemplateHelper.renderData(handler, listKey + ".length")));
+            }
+        }
+        return maxRowData;
+    }
+
+
+    /**
+     * 展开列表行，仅生成行结构、样式及公式，列表单元格的值在 renderNormal 中按下标渲染
+     *
+     * @return 每个工作表中列表行（模板行号）对应的展开行数
+     */
+    private List<Map<Integer, Integer>> wrapList(FastHandler handler, Workbook workbook, FastExcelTemplateIndex templateIndex) {
+        List<Map<Integer, Integer>> sheetListSizes = new ArrayList<>();
+        FormulaParsingWorkbook formulaWorkbook = null;
+        if (workbook instanceof XSSFWorkbook) {
+            formulaWorkbook = XSSFEvaluationWorkbook.create((XSSFWorkbook) workbook);
+        } else if (workbook instanceof HSSFWorkbook) {
+            formulaWorkbook = HSSFEvaluationWorkbook.create((HSSFWorkbook) workbook);
+        }
+        long expandedCells = 0;
         int sheetCount = workbook.getNumberOfSheets();
         for (int i = 0; i < sheetCount; i++) {
             Sheet sheet = workbook.getSheetAt(i);
-            int rowCount = sheet.getPhysicalNumberOfRows();
-            for (int i1 = 0; i1 < rowCount; i1++) {
-                Row dataRow = sheet.getRow(i1);
-                if (dataRow == null) {
+            FastExcelTemplateIndex.SheetIndex sheetIndex = templateIndex.getSheets().get(i);
+            Map<Integer, Integer> listSizes = new HashMap<>();
+            sheetListSizes.add(listSizes);
+
+            int offset = 0;
+            for (Integer listRow : sheetIndex.getListRows()) {
+                int rowNum = listRow + offset;
+                Row dataRow = sheet.getRow(rowNum);
+
+                int maxRowData = 0;
+                Set<Integer> listCells = new HashSet<>();
+                for (FastExcelTemplateIndex.CellIndex cellIndex : sheetIndex.getRows().get(listRow)) {
+                    if (cellIndex.isList()) {
+                        maxRowData = Math.max(maxRowData, getListSize(handler, cellIndex));
+                        listCells.add(cellIndex.getColumn());
+                    }
+                }
+                //展开前检查行数，避免渲染大量数据后才因超出工作表最大行数失败
+                int maxRows = workbook.getSpreadsheetVersion().getMaxRows();
+                if ((long) Math.max(sheet.getLastRowNum(), rowNum) + maxRowData > maxRows) {
+                    throw new IllegalStateException("工作表【" + sheet.getSheetName() + "】的列表共" + maxRowData + "行，展开后超出最大行数"
+                            + maxRows + "！请使用xlsx模板并开启 FastTemplateConfig.setExcelStreaming 自动拆分工作表，或输出为zip拆分为多个文件。");
+                }
+                listSizes.put(listRow, Math.max(maxRowData, 1));
+                FastTemplateMetrics.of(handler).addRows(maxRowData);
+                expandedCells += (long) maxRowData * dataRow.getPhysicalNumberOfCells();
+                if (maxRowData <= 1) {
                     continue;
                 }
-                int cellCount = dataRow.getLastCellNum();
-                for (int i2 = 0; i2 < cellCount; i2++) {
-                    Cell cell = dataRow.getCell(i2);
-                    replaceCell(handler, workbook, cell);
+
+                //一次性将列表行之后的所有行下移，再填充新增的行
+                //注意：xlsx在已有行之间创建行时需统计其之前的行数，倒序创建可使该统计不随新增行数增长
+                int insertCount = maxRowData - 1;
+                if (rowNum < sheet.getLastRowNum()) {
+                    sheet.shiftRows(rowNum + 1, sheet.getLastRowNum(), insertCount);
                 }
+                RowTemplate rowTemplate = toListRowTemplate(formulaWorkbook, i, dataRow, listCells);
+                for (int newRowNum = maxRowData - 1; newRowNum >= 1; newRowNum--) {
+                    int insertRow = rowNum + newRowNum;
+                    Row row = sheet.getRow(insertRow);
+                    if (row == null) {
+                        row = sheet.createRow(insertRow);
+                    }
+                    if (rowTemplate.height >= 0) {
+                        row.setHeight(rowTemplate.height);
+                    }
+                    for (CellTemplate cellTemplate : rowTemplate.cells) {
+                        Cell cell = row.getCell(cellTemplate.column);
+                        if (cell == null) {
+                            cell = row.createCell(cellTemplate.column);
+                        }
+                        if (cellTemplate.style != null) {
+                            cell.setCellStyle(cellTemplate.style);
+                        }
+                        if (cellTemplate.formula != null) {
+                            cell.setCellFormula(shiftFormula(formulaWorkbook, workbook, i, cellTemplate.formula, rowNum, newRowNum));
+                        }
+                    }
+                }
+                offset += insertCount;
             }
         }
+        //按实际展开的单元格数修正准入估算的内存
+        FastTemplateAdmission.adjust(handler, expandedCells);
+        return sheetListSizes;
     }
 
-
-    private Object getCellValue(Workbook workbook, Cell cell) {
-        if (workbook == null) {
-            return null;
+    /**
+     * 记录列表行每列的样式及公式，展开的行直接使用模板行的样式对象，不新建样式；非列表单元格的公式只解析一次，按行偏移后写入
+     */
+    private RowTemplate toListRowTemplate(FormulaParsingWorkbook formulaWorkbook, int sheetIndex, Row row, Set<Integer> listCells) {
+        RowTemplate rowTemplate = new RowTemplate();
+        rowTemplate.rowNum = row.getRowNum();
+        if (row.getHeight() != row.getSheet().getDefaultRowHeight()) {
+            rowTemplate.height = row.getHeight();
         }
-        if (cell == null) {
-            return null;
+        for (Cell cell : row) {
+            CellTemplate cellTemplate = new CellTemplate();
+            cellTemplate.column = cell.getColumnIndex();
+            cellTemplate.style = cell.getCellStyle();
+            if (formulaWorkbook != null && cell.getCellType() == CellType.FORMULA && !listCells.contains(cell.getColumnIndex())) {
+                cellTemplate.formula = parseFormula(formulaWorkbook, sheetIndex, cell);
+            }
+            rowTemplate.cells.add(cellTemplate);
         }
-        return takeCellValue(workbook, cell, cell.getCellType());
+        return rowTemplate;
     }
 
-    private Object takeCellValue(Workbook workbook, Cell cell, CellType cellType) {
+    /**
+     * 解析单元格的公式，无法解析时返回null
+     */
+    private Ptg[] parseFormula(FormulaParsingWorkbook formulaWorkbook, int sheetIndex, Cell cell) {
         try {
-            if (workbook == null) {
-                return null;
+            return FormulaParser.parse(cell.getCellFormula(), formulaWorkbook, FormulaType.CELL, sheetIndex, cell.getRowIndex());
+        } catch (Exception e) {
+            FastChar.getLogger().error(this.getClass(), e);
+        }
+        return null;
+    }
+
+    /**
+     * 将模板行的公式复制到下方第 rows 行，相对引用随行偏移，绝对引用不变
+     */
+    private String shiftFormula(FormulaParsingWorkbook formulaWorkbook, Workbook workbook, int sheetIndex, Ptg[] formula, int rowNum, int rows) {
+        Ptg[] ptgs = new Ptg[formula.length];
+        for (int i = 0; i < formula.length; i++) {
+            ptgs[i] = formula[i].copy();
+        }
+        FormulaShifter.createForRowCopy(sheetIndex, workbook.getSheetName(sheetIndex), rowNum, rowNum, rows,
+                workbook.getSpreadsheetVersion()).adjustFormula(ptgs, sheetIndex);
+        return FormulaRenderer.toFormulaString((FormulaRenderingWorkbook) formulaWorkbook, ptgs);
+    }
+
+    /**
+     * 按索引渲染包含变量的单元格，列表行按展开行数逐行渲染
+     */
+    private void renderNormal(final FastHandler handler, Workbook workbook, FastExcelTemplateIndex templateIndex,
+                              List<Map<Integer, Integer>> sheetListSizes) throws Exception {
+        final CellWriter cellWriter = new CellWriter(workbook);
+        int sheetCount = workbook.getNumberOfSheets();
+        if (sheetCount > 1 && FastChar.getConfig(FastTemplateConfig.class).isExcelParallelSheets()) {
+            //并行解析各工作表的变量值，再按顺序写入工作簿，POI对象只在当前线程中修改；
+            //解析上下文及统计信息在当前线程中创建，工作线程不再写入 handler
+            FastTemplateContext.of(handler);
+            FastTemplateMetrics.of(handler);
+            List<Future<List<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < sheetCount; i++) {
+                final FastExcelTemplateIndex.SheetIndex sheetIndex = templateIndex.getSheets().get(i);
+                final Map<Integer, Integer> listSizes = sheetListSizes.get(i);
+                futures.add(FastTemplateExecutors.getSheetExecutor().submit(new Callable<List<Object>>() {
+                    @Override
+                    public List<Object> call() {
+                        List<Object> values = new ArrayList<>();
+                        renderSheet(handler, cellWriter, null, sheetIndex, listSizes, values);
+                        return values;
+                    }
+                }));
             }
-            if (cell == null) {
-                return null;
+            try {
+                for (int i = 0; i < sheetCount; i++) {
+                    renderSheet(handler, cellWriter, workbook.getSheetAt(i), templateIndex.getSheets().get(i), sheetListSizes.get(i), futures.get(i).get());
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } finally {
+                for (Future<List<Object>> future : futures) {
+                    future.cancel(true);
+                }
             }
-            if (cellType == CellType.BLANK || cellType == CellType.STRING) {
-                return cell.getStringCellValue();
-            } else if (cellType == CellType.NUMERIC) {
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return FastDateUtils.format(cell.getDateCellValue(), FastChar.getConstant().getDateFormat());
-                } else {
-                    return NumberToTextConverter.toText(cell.getNumericCellValue());
+            return;
+        }
+        for (int i = 0; i < sheetCount; i++) {
+            renderSheet(handler, cellWriter, workbook.getSheetAt(i), templateIndex.getSheets().get(i), sheetListSizes.get(i), null);
+        }
+    }
+
+    /**
+     * 渲染单个工作表，解析及写入按相同顺序遍历单元格
+     *
+     * @param sheet  工作表，为null时只解析变量值并按顺序存入values
+     * @param values 已解析的变量值，sheet不为null且values不为null时按顺序写入单元格
+     */
+    private void renderSheet(FastHandler handler, CellWriter cellWriter, Sheet sheet, FastExcelTemplateIndex.SheetIndex sheetIndex,
+                             Map<Integer, Integer> listSizes, List<Object> values) {
+        int valueIndex = 0;
+        int offset = 0;
+        for (Map.Entry<Integer, List<FastExcelTemplateIndex.CellIndex>> entry : sheetIndex.getRows().entrySet()) {
+            Integer listSize = listSizes.get(entry.getKey());
+            int repeat = listSize == null ? 1 : listSize;
+            for (int index = 0; index < repeat; index++) {
+                Row row = null;
+                if (sheet != null) {
+                    row = sheet.getRow(entry.getKey() + offset + index);
+                    if (row == null) {
+                        row = sheet.createRow(entry.getKey() + offset + index);
+                    }
                 }
+                for (FastExcelTemplateIndex.CellIndex cellIndex : entry.getValue()) {
+                    if (index > 0 && !cellIndex.isList()) {
+                        continue;
+                    }
+                    if (row == null) {
+                        values.add(cellWriter.resolve(handler, cellIndex, index));
+                        continue;
+                    }
+                    Cell cell = row.getCell(cellIndex.getColumn());
+                    if (cell == null) {
+                        cell = row.createCell(cellIndex.getColumn());
+                    }
+                    cellWriter.write(cell, values != null ? values.get(valueIndex++) : cellWriter.resolve(handler, cellIndex, index));
+                }
+            }
+            offset += repeat - 1;
+        }
+    }
+
+
+    /**
+     * 获取模板中固定内容单元格的值，保留数字、布尔等原始类型，公式单元格取其计算结果
+     */
+    private Object getCellValue(Cell cell) {
+        try {
+            CellType cellType = cell.getCellType();
+            if (cellType == CellType.FORMULA) {
+                cellType = cell.getCachedFormulaResultType();
+            }
+            if (cellType == CellType.NUMERIC) {
+                return cell.getNumericCellValue();
             } else if (cellType == CellType.BOOLEAN) {
                 return cell.getBooleanCellValue();
-            } else if (cellType == CellType.FORMULA) {
-                return takeCellValue(workbook, cell, cell.getCachedFormulaResultType());
+            } else if (cellType == CellType.STRING) {
+                return cell.getStringCellValue();
             }
-            return cell.getStringCellValue();
         } catch (Exception e) {
             FastChar.getLogger().error(this.getClass(), e);
         }
         return null;
     }
 
-    private void replaceCell(FastHandler handler, Workbook workbook, Cell cell) {
-        Object value = getCellValue(workbook, cell);
-        if (value != null) {
-            String regStr = "\\$\\{(.*)}";
-            Pattern compile = Pattern.compile(regStr);
-            String text = value.toString();
-            Matcher matcher = compile.matcher(text);
-            while (matcher.find()) {
-                String key = matcher.group(1);
-                Object invokeValue = FastTemplateHelper.renderData(handler, key);
-                if (invokeValue == null) {
-                    invokeValue = "";
+    /**
+     * 渲染单元格文本
+     *
+     * @param cellIndex 单元格索引
+     * @param listIndex 列表下标，用于替换列表变量中的 [i]
+     * @return 渲染后的文本
+     */
+    private static String renderText(FastHandler handler, FastExcelTemplateIndex.CellIndex cellIndex, int listIndex) {
+        String text = cellIndex.getText();
+        StringBuilder builder = new StringBuilder(text.length());
+        int lastEnd = 0;
+        for (FastTemplatePlaceholder placeholder : cellIndex.getPlaceholders()) {
+            builder.append(text, lastEnd, placeholder.getStart());
+            Object invokeValue = FastTemplateHelper.renderData(handler, placeholder, listIndex);
+            if (invokeValue != null) {
+                builder.append(invokeValue);
+            }
+            lastEnd = placeholder.getEnd();
+        }
+        builder.append(text, lastEnd, text.length());
+        return builder.toString();
+    }
+
+
+    /**
+     * 数字是否可以写为数字单元格而不丢失精度：整数不超过 2^53，BigDecimal 的有效位数不超过15位，
+     * 否则按文本写入（例如：19位的订单号）
+     */
+    static boolean isExactNumber(Number number) {
+        if (number instanceof Long || number instanceof AtomicLong) {
+            long value = number.longValue();
+            return value >= -MAX_EXACT_LONG && value <= MAX_EXACT_LONG;
+        }
+        if (number instanceof BigInteger) {
+            return ((BigInteger) number).bitLength() <= 53;
+        }
+        if (number instanceof BigDecimal) {
+            return ((BigDecimal) number).precision() <= 15;
+        }
+        double value = number.doubleValue();
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    /**
+     * 单元格值的写入器，每次渲染创建一个：只包含一个变量的单元格按值的类型写入，数字、日期、布尔值写为对应类型的单元格，
+     * 沿用模板单元格的样式及数字格式；日期值所在单元格的格式不是日期格式时，使用 FastChar 的日期格式，相同样式只创建一次
+     */
+    private static final class CellWriter {
+        private final Workbook workbook;
+        private final boolean typedValue;
+        private final Map<Short, CellStyle> dateStyles = new HashMap<>();
+
+        private CellWriter(Workbook workbook) {
+            this.workbook = workbook;
+            this.typedValue = FastChar.getConfig(FastTemplateConfig.class).isExcelTypedValue();
+        }
+
+        /**
+         * 解析单元格的值，不修改工作簿，可在多个线程中调用
+         *
+         * @return 只包含一个变量时返回变量值，否则返回渲染后的文本
+         */
+        private Object resolve(FastHandler handler, FastExcelTemplateIndex.CellIndex cellIndex, int listIndex) {
+            if (!typedValue || !cellIndex.isSingle()) {
+                return renderText(handler, cellIndex, listIndex);
+            }
+            return FastTemplateHelper.renderData(handler, cellIndex.getPlaceholders().get(0), listIndex);
+        }
+
+        private void write(Cell cell, Object value) {
+            if (value == null) {
+                cell.setBlank();
+            } else if (value instanceof String) {
+                cell.setCellValue((String) value);
+            } else if (value instanceof Number) {
+                Number number = (Number) value;
+                if (isExactNumber(number)) {
+                    cell.setCellValue(value instanceof Float ? Double.parseDouble(value.toString()) : number.doubleValue());
+                } else {
+                    cell.setCellValue(value.toString());
+                }
+            } else if (value instanceof Boolean) {
+                cell.setCellValue((Boolean) value);
+            } else if (value instanceof Date) {
+                cell.setCellValue((Date) value);
+                applyDateStyle(cell);
+            } else if (value instanceof Calendar) {
+                cell.setCellValue((Calendar) value);
+                applyDateStyle(cell);
+            } else if (value instanceof LocalDateTime) {
+                cell.setCellValue((LocalDateTime) value);
+                applyDateStyle(cell);
+            } else if (value instanceof LocalDate) {
+                cell.setCellValue((LocalDate) value);
+                applyDateStyle(cell);
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+
+        private void applyDateStyle(Cell cell) {
+            CellStyle style = cell.getCellStyle();
+            if (DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString())) {
+                return;
+            }
+            CellStyle dateStyle = dateStyles.get(style.getIndex());
+            if (dateStyle == null) {
+                dateStyle = workbook.createCellStyle();
+                dateStyle.cloneStyleFrom(style);
+                dateStyle.setDataFormat(workbook.createDataFormat().getFormat(FastChar.getConstant().getDateFormat()));
+                dateStyles.put(style.getIndex(), dateStyle);
+            }
+            cell.setCellStyle(dateStyle);
+        }
+    }
+
+    /**
+     * 流式写出时按行数拆分：当前工作表写满后，输出为zip时新建只包含该工作表的xlsx文件（从模板重新加载并渲染表头），
+     * 否则在当前工作表之后新建工作表并复制表头行；拆分出的文件写满后立即写入zip并释放临时文件
+     */
+    private final class SplitWriter {
+        private final FastHandler handler;
+        private final FastExcelTemplateIndex templateIndex;
+        private final SXSSFWorkbook streamWorkbook;
+        private final CellWriter streamCellWriter;
+        private final int windowSize;
+        private final int splitRows;
+        private final ZipOutputStream zipOutputStream;
+        private final String baseName;
+
+        private int fileCount = 1;
+        private boolean streamWritten;
+
+        private int sheetIndex;
+        private SheetTail sheetTail;
+        private boolean lastTailSheet;
+        private int splitCount;
+        private int chunkRows;
+        private int headListRows;
+        private boolean headShifted;
+        private Sheet headSheet;
+        private Sheet sheet;
+        private int nextRowNum;
+        private CellWriter cellWriter;
+
+        private SXSSFWorkbook chunkWorkbook;
+        private String chunkName;
+        private final Map<Short, CellStyle> chunkStyles = new HashMap<>();
+
+        private SplitWriter(FastHandler handler, FastExcelTemplateIndex templateIndex, SXSSFWorkbook streamWorkbook,
+                            CellWriter streamCellWriter, int windowSize, ZipOutputStream zipOutputStream) {
+            this.handler = handler;
+            this.templateIndex = templateIndex;
+            this.streamWorkbook = streamWorkbook;
+            this.streamCellWriter = streamCellWriter;
+            this.windowSize = Math.max(windowSize, 1);
+            this.splitRows = FastChar.getConfig(FastTemplateConfig.class).getExcelSplitRows();
+            this.zipOutputStream = zipOutputStream;
+            this.baseName = getBaseName(handler);
+        }
+
+        /**
+         * 开始写出工作表的列表行
+         *
+         * @param lastTailSheet 是否为最后一个包含列表行的工作表，拆分为多个文件时此后原工作簿不再写入，可提前输出
+         */
+        private void begin(int sheetIndex, Sheet sheet, SheetTail sheetTail, boolean lastTailSheet) {
+            this.sheetIndex = sheetIndex;
+            this.sheet = sheet;
+            this.sheetTail = sheetTail;
+            this.lastTailSheet = lastTailSheet;
+            this.splitCount = 1;
+            this.headListRows = 0;
+            this.headShifted = false;
+            this.headSheet = sheetTail.sheet;
+            this.nextRowNum = sheetTail.listRowNum;
+            this.cellWriter = streamCellWriter;
+            int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows() - sheetTail.listRowNum;
+            this.chunkRows = splitRows > 0 ? Math.min(splitRows, maxRows) : maxRows;
+        }
+
+        private void skip(int rows) {
+            nextRowNum += rows;
+        }
+
+        /**
+         * 创建下一行，当前工作表写满时先拆分
+         */
+        private Row nextRow() throws Exception {
+            if (nextRowNum - sheetTail.listRowNum >= chunkRows) {
+                split();
+            }
+            return sheet.createRow(nextRowNum++);
+        }
+
+        private CellWriter getCellWriter() {
+            return cellWriter;
+        }
+
+        /**
+         * 记录当前工作表或文件中列表行展开的行数
+         */
+        private void countListRow() {
+            headListRows++;
+        }
+
+        /**
+         * 离开当前工作表或文件时按其中的列表行数更新表头行的公式，须在所在工作簿写出之前调用
+         */
+        private void shiftHeads() {
+            if (!headShifted) {
+                headShifted = true;
+                shiftHeadFormulas(sheetTail, headSheet, headListRows - 1);
+            }
+        }
+
+        /**
+         * 获取模板样式在当前工作簿中的样式，拆分出的文件从同一模板加载，样式下标一致
+         */
+        private CellStyle getStyle(CellStyle style) {
+            if (chunkWorkbook == null) {
+                return style;
+            }
+            CellStyle chunkStyle = chunkStyles.get(style.getIndex());
+            if (chunkStyle == null) {
+                chunkStyle = chunkWorkbook.getCellStyleAt(style.getIndex());
+                chunkStyles.put(style.getIndex(), chunkStyle);
+            }
+            return chunkStyle;
+        }
+
+        private void split() throws Exception {
+            shiftHeads();
+            splitCount++;
+            if (zipOutputStream != null) {
+                newFile();
+            } else {
+                newSheet();
+            }
+            nextRowNum = sheetTail.listRowNum;
+            headListRows = 0;
+            headShifted = false;
+        }
+
+        private void newSheet() {
+            Sheet templateSheet = sheetTail.sheet;
+            String sheetName = getSheetName(templateSheet.getSheetName());
+            Sheet newSheet = streamWorkbook.createSheet(sheetName);
+            streamWorkbook.setSheetOrder(sheetName, streamWorkbook.getSheetIndex(sheet) + 1);
+            for (int column = 0; column <= sheetTail.lastColumn; column++) {
+                newSheet.setColumnWidth(column, templateSheet.getColumnWidth(column));
+            }
+            PaneInformation paneInformation = templateSheet.getPaneInformation();
+            if (paneInformation != null && paneInformation.isFreezePane()) {
+                newSheet.createFreezePane(paneInformation.getVerticalSplitPosition(), paneInformation.getHorizontalSplitPosition(),
+                        paneInformation.getVerticalSplitLeftColumn(), paneInformation.getHorizontalSplitTopRow());
+            }
+            //表头行写入 XSSF 中，不随窗口写出，离开该工作表时才能更新其中的公式
+            headSheet = streamWorkbook.getXSSFWorkbook().getSheet(sheetName);
+            for (RowTemplate head : sheetTail.heads) {
+                Row row = headSheet.createRow(head.rowNum);
+                if (head.height >= 0) {
+                    row.setHeight(head.height);
+                }
+                for (CellTemplate cellTemplate : head.cells) {
+                    Cell cell = row.createCell(cellTemplate.column);
+                    if (cellTemplate.style != null) {
+                        cell.setCellStyle(cellTemplate.style);
+                    }
+                    if (cellTemplate.formula != null) {
+                        cell.setCellFormula(shiftTailFormula(sheetTail, head.rowNum, cellTemplate.formula, 0, 0));
+                    } else {
+                        cellWriter.write(cell, cellTemplate.value);
+                    }
                 }
-                text = text.replace("${" + key + "}", invokeValue.toString());
             }
-            cell.setCellValue(text);
+            for (CellRangeAddress region : sheetTail.headRegions) {
+                newSheet.addMergedRegionUnsafe(region.copy());
+            }
+            sheet = newSheet;
+        }
+
+        /**
+         * 工作表名称后追加拆分序号，例如：明细 (2)，不超过31个字符
+         */
+        private String getSheetName(String name) {
+            String sheetName;
+            int number = splitCount;
+            do {
+                String suffix = " (" + number++ + ")";
+                sheetName = (name.length() + suffix.length() > 31 ? name.substring(0, 31 - suffix.length()) : name) + suffix;
+            } while (streamWorkbook.getSheet(sheetName) != null);
+            return sheetName;
         }
+
+        private void newFile() throws Exception {
+            finishChunk();
+            if (lastTailSheet && !streamWritten) {
+                //原工作簿不再写入，提前输出
+                writeStream();
+            }
+            Object template = handler.get("__template");
+            if (!(template instanceof FastCompiledTemplate)) {
+                throw new IllegalStateException("拆分为多个文件需使用已解析的模板！");
+            }
+            XSSFWorkbook workbook = new XSSFWorkbook(((FastCompiledTemplate) template).newInputStream());
+            for (int i = workbook.getNumberOfSheets() - 1; i >= 0; i--) {
+                if (i != sheetIndex) {
+                    workbook.removeSheetAt(i);
+                }
+            }
+            CellWriter chunkCellWriter = new CellWriter(workbook);
+            extractTail(handler, chunkCellWriter, XSSFEvaluationWorkbook.create(workbook), workbook.getSheetAt(0),
+                    templateIndex.getSheets().get(sheetIndex));
+            headSheet = workbook.getSheetAt(0);
+            chunkWorkbook = new SXSSFWorkbook(workbook, windowSize);
+            chunkStyles.clear();
+            chunkName = baseName + "_" + (++fileCount) + ".xlsx";
+            sheet = chunkWorkbook.getSheetAt(0);
+            cellWriter = chunkCellWriter;
+        }
+
+        /**
+         * 拆分出的文件写满后写入zip，并释放临时文件
+         */
+        private void finishChunk() throws IOException {
+            if (chunkWorkbook == null) {
+                return;
+            }
+            try {
+                zipOutputStream.putNextEntry(new ZipEntry(chunkName));
+                chunkWorkbook.write(new EntryOutputStream(zipOutputStream));
+                zipOutputStream.closeEntry();
+                zipOutputStream.flush();
+            } finally {
+                chunkWorkbook.dispose();
+                FastFileUtils.closeQuietly(chunkWorkbook);
+                chunkWorkbook = null;
+            }
+        }
+
+        private void writeStream() throws IOException {
+            zipOutputStream.putNextEntry(new ZipEntry(baseName + "_1.xlsx"));
+            streamWorkbook.write(new EntryOutputStream(zipOutputStream));
+            zipOutputStream.closeEntry();
+            zipOutputStream.flush();
+            streamWritten = true;
+        }
+
+        /**
+         * 工作表写出结束
+         */
+        private void end() throws IOException {
+            shiftHeads();
+            finishChunk();
+            cellWriter = streamCellWriter;
+        }
+
+        private void finish(OutputStream outputStream) throws IOException {
+            if (zipOutputStream == null) {
+                streamWorkbook.write(outputStream);
+                return;
+            }
+            finishChunk();
+            if (!streamWritten) {
+                writeStream();
+            }
+            zipOutputStream.finish();
+        }
+
+        private void dispose() {
+            if (chunkWorkbook != null) {
+                chunkWorkbook.dispose();
+                FastFileUtils.closeQuietly(chunkWorkbook);
+                chunkWorkbook = null;
+            }
+        }
+    }
+
+    /**
+     * 拆分文件的名称前缀，取输出文件名去掉后缀
+     */
+    private static String getBaseName(FastHandler handler) {
+        Object value = handler.get("__fileName");
+        String fileName = value == null ? "" : new File(value.toString()).getName();
+        int index = fileName.lastIndexOf('.');
+        if (index >= 0) {
+            fileName = fileName.substring(0, index);
+        }
+        return fileName.isEmpty() ? "export" : fileName;
+    }
+
+    /**
+     * zip条目的输出流，工作簿写出后关闭输出流时只刷新，不关闭zip
+     */
+    private static final class EntryOutputStream extends FilterOutputStream {
+        private EntryOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * 流式渲染时工作表中从列表行开始摘出的行，及用于拆分时重复的表头行
+     */
+    private static class SheetTail {
+        private Sheet sheet;
+        private int sheetNum;
+        private XSSFEvaluationWorkbook formulaWorkbook;
+        private int listRowNum;
+        private int lastRowNum;
+        private int lastColumn;
+        private final List<RowTemplate> tails = new ArrayList<>();
+        private final List<CellRangeAddress> regions = new ArrayList<>();
+        private final List<RowTemplate> heads = new ArrayList<>();
+        private final List<CellRangeAddress> headRegions = new ArrayList<>();
+    }
+
+    /**
+     * 模板行写出后所在的位置
+     */
+    private static class RowSpan {
+        private Sheet firstSheet;
+        private int firstRowNum;
+        private Sheet lastSheet;
+        private int lastRowNum;
+        private int count;
+    }
+
+    private static class RowTemplate {
+        private int rowNum;
+        private short height = -1;
+        private int listSize;
+        private final List<String> rowsKeys = new ArrayList<>();
+        private final List<CellTemplate> cells = new ArrayList<>();
+    }
+
+    private static class CellTemplate {
+        private int column;
+        private CellStyle style;
+        private Ptg[] formula;
+        private Object value;
+        private FastExcelTemplateIndex.CellIndex cellIndex;
     }
 }
@@ -0,0 +1,240 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.template.info.FastTemplatePlaceholder;
+import com.fastchar.utils.FastFileUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 使用SAX逐行读取xlsx工作表的XML生成变量位置索引，不创建工作簿对象模型，共享字符串只保留包含变量的部分，
+ * 仅字符串单元格（含公式的字符串结果）可能包含变量，数字、日期等单元格不做任何转换
+ */
+final class FastExcelTemplateScanner {
+
+    private FastExcelTemplateScanner() {
+    }
+
+    /**
+     * 扫描xlsx模板
+     *
+     * @param inputStream 模板输入流，扫描完毕后关闭
+     * @return 变量位置索引，工作表顺序与工作簿一致
+     */
+    static FastExcelTemplateIndex scan(InputStream inputStream) throws Exception {
+        OPCPackage opcPackage = null;
+        try {
+            opcPackage = OPCPackage.open(inputStream);
+            XSSFReader reader = new XSSFReader(opcPackage);
+            Map<Integer, String> sharedStrings = new HashMap<>();
+            for (PackagePart part : opcPackage.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType())) {
+                InputStream partInputStream = part.getInputStream();
+                try {
+                    XMLReader xmlReader = XMLHelper.newXMLReader();
+                    xmlReader.setContentHandler(new SharedStringsHandler(sharedStrings));
+                    xmlReader.parse(new InputSource(partInputStream));
+                } finally {
+                    FastFileUtils.closeQuietly(partInputStream);
+                }
+            }
+            FastExcelTemplateIndex templateIndex = new FastExcelTemplateIndex();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            while (sheets.hasNext()) {
+                InputStream sheetInputStream = sheets.next();
+                try {
+                    SheetHandler sheetHandler = new SheetHandler(sharedStrings);
+                    XMLReader xmlReader = XMLHelper.newXMLReader();
+                    xmlReader.setContentHandler(sheetHandler);
+                    xmlReader.parse(new InputSource(sheetInputStream));
+                    templateIndex.getSheets().add(sheetHandler.sheetIndex);
+                } finally {
+                    FastFileUtils.closeQuietly(sheetInputStream);
+                }
+            }
+            return templateIndex;
+        } finally {
+            if (opcPackage != null) {
+                opcPackage.revert();
+            }
+            FastFileUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * 解码XML中以 _xHHHH_ 转义的字符，仅可能包含变量的文本才需要解码
+     */
+    private static String decode(String text) {
+        if (!text.contains("${") && !text.contains("_x")) {
+            return null;
+        }
+        return new XSSFRichTextString(text).getString();
+    }
+
+    /**
+     * 共享字符串XML的处理器，只保留可能包含变量的字符串，key为共享字符串下标
+     */
+    private static final class SharedStringsHandler extends DefaultHandler {
+        private final Map<Integer, String> sharedStrings;
+        private final StringBuilder value = new StringBuilder();
+
+        private int index = -1;
+        private boolean valueOpen;
+        private boolean phonetic;
+
+        private SharedStringsHandler(Map<Integer, String> sharedStrings) {
+            this.sharedStrings = sharedStrings;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            String name = localName == null || localName.isEmpty() ? qName : localName;
+            if ("si".equals(name)) {
+                index++;
+                value.setLength(0);
+            } else if ("rPh".equals(name)) {
+                phonetic = true;
+            } else if ("t".equals(name)) {
+                valueOpen = !phonetic;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            String name = localName == null || localName.isEmpty() ? qName : localName;
+            if ("t".equals(name)) {
+                valueOpen = false;
+            } else if ("rPh".equals(name)) {
+                phonetic = false;
+            } else if ("si".equals(name)) {
+                String text = decode(value.toString());
+                if (text != null && text.contains("${")) {
+                    sharedStrings.put(index, text);
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (valueOpen) {
+                value.append(ch, start, length);
+            }
+        }
+    }
+
+    /**
+     * 工作表XML的处理器，只收集包含变量的字符串单元格
+     */
+    private static final class SheetHandler extends DefaultHandler {
+        private final Map<Integer, String> sharedStrings;
+        private final FastExcelTemplateIndex.SheetIndex sheetIndex = new FastExcelTemplateIndex.SheetIndex();
+        private final StringBuilder value = new StringBuilder();
+
+        private int rowNum = -1;
+        private int column = -1;
+        private String cellType;
+        private boolean valueOpen;
+        private boolean inlineString;
+        private boolean phonetic;
+
+        private SheetHandler(Map<Integer, String> sharedStrings) {
+            this.sharedStrings = sharedStrings;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            String name = localName == null || localName.isEmpty() ? qName : localName;
+            if ("row".equals(name)) {
+                String r = attributes.getValue("r");
+                rowNum = r == null ? rowNum + 1 : Integer.parseInt(r) - 1;
+                column = -1;
+            } else if ("c".equals(name)) {
+                String r = attributes.getValue("r");
+                column = r == null ? column + 1 : toColumn(r);
+                cellType = attributes.getValue("t");
+                value.setLength(0);
+            } else if ("v".equals(name)) {
+                valueOpen = "s".equals(cellType) || "str".equals(cellType);
+            } else if ("is".equals(name)) {
+                inlineString = true;
+            } else if ("rPh".equals(name)) {
+                phonetic = true;
+            } else if ("t".equals(name)) {
+                valueOpen = inlineString && !phonetic;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            String name = localName == null || localName.isEmpty() ? qName : localName;
+            if ("v".equals(name) || "t".equals(name)) {
+                valueOpen = false;
+            } else if ("rPh".equals(name)) {
+                phonetic = false;
+            } else if ("is".equals(name)) {
+                inlineString = false;
+            } else if ("c".equals(name)) {
+                addCell();
+                cellType = null;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (valueOpen) {
+                value.append(ch, start, length);
+            }
+        }
+
+        private void addCell() {
+            if (value.length() == 0) {
+                return;
+            }
+            String text;
+            if ("s".equals(cellType)) {
+                text = sharedStrings.get(Integer.parseInt(value.toString().trim()));
+            } else if ("str".equals(cellType) || "inlineStr".equals(cellType)) {
+                text = decode(value.toString());
+            } else {
+                return;
+            }
+            if (text == null) {
+                return;
+            }
+            List<FastTemplatePlaceholder> placeholders = FastTemplatePlaceholder.parse(text);
+            if (!placeholders.isEmpty()) {
+                sheetIndex.addCell(new FastExcelTemplateIndex.CellIndex(rowNum, column, text, placeholders));
+            }
+        }
+
+        /**
+         * 单元格地址（例如：AB12）转换为列下标
+         */
+        private static int toColumn(String reference) {
+            int column = 0;
+            for (int i = 0; i < reference.length(); i++) {
+                char ch = reference.charAt(i);
+                if (ch >= 'A' && ch <= 'Z') {
+                    column = column * 26 + (ch - 'A' + 1);
+                } else if (ch >= 'a' && ch <= 'z') {
+                    column = column * 26 + (ch - 'a' + 1);
+                } else if (ch != '$') {
+                    break;
+                }
+            }
+            return column - 1;
+        }
+    }
+}
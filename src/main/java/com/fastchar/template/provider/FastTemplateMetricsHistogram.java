@@ -0,0 +1,175 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.template.info.FastTemplateMetrics;
+import com.fastchar.template.interfaces.IFastTemplateMetricsListener;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 内存中的渲染统计直方图，按2的幂分桶，各阶段耗时以阶段名称记录（单位：纳秒），
+ * 其他指标以 {@link #PLACEHOLDERS}、{@link #ROWS}、{@link #DATA_LOOKUPS}、{@link #DATA_LOOKUP_NANOS}、{@link #OUTPUT_BYTES} 记录，
+ * 可定时读取后上报到监控系统
+ */
+public class FastTemplateMetricsHistogram implements IFastTemplateMetricsListener {
+    public static final String PLACEHOLDERS = "placeholders";
+    public static final String ROWS = "rows";
+    public static final String DATA_LOOKUPS = "dataLookups";
+    public static final String DATA_LOOKUP_NANOS = "dataLookupNanos";
+    public static final String OUTPUT_BYTES = "outputBytes";
+
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    @Override
+    public void onRendered(FastTemplateMetrics metrics) {
+        if (metrics.isSuccess()) {
+            successCount.incrementAndGet();
+        } else {
+            errorCount.incrementAndGet();
+        }
+        for (Map.Entry<String, Long> entry : metrics.getPhases().entrySet()) {
+            getOrCreate(entry.getKey()).record(entry.getValue());
+        }
+        getOrCreate(PLACEHOLDERS).record(metrics.getPlaceholders());
+        getOrCreate(ROWS).record(metrics.getRows());
+        getOrCreate(DATA_LOOKUPS).record(metrics.getDataLookups());
+        getOrCreate(DATA_LOOKUP_NANOS).record(metrics.getDataLookupNanos());
+        getOrCreate(OUTPUT_BYTES).record(metrics.getOutputBytes());
+    }
+
+    /**
+     * 获取指标的直方图
+     *
+     * @param name 指标名称
+     * @return 直方图，未记录时返回null
+     */
+    public Histogram getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * 获取已记录的指标名称
+     */
+    public Set<String> getNames() {
+        return new TreeSet<>(histograms.keySet());
+    }
+
+    /**
+     * 渲染成功的次数
+     */
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+
+    /**
+     * 渲染失败的次数
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        histograms.clear();
+        successCount.set(0);
+        errorCount.set(0);
+    }
+
+    private Histogram getOrCreate(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram();
+            Histogram exists = histograms.putIfAbsent(name, histogram);
+            if (exists != null) {
+                histogram = exists;
+            }
+        }
+        return histogram;
+    }
+
+    public static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        void record(long value) {
+            value = Math.max(value, 0);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value) - (value == 0 ? 0 : 1));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+                Thread.yield();
+            }
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                Thread.yield();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSum() {
+            return sum.get();
+        }
+
+        public long getMin() {
+            return count.get() == 0 ? 0 : min.get();
+        }
+
+        public long getMax() {
+            return count.get() == 0 ? 0 : max.get();
+        }
+
+        public double getMean() {
+            long total = count.get();
+            return total == 0 ? 0 : (double) sum.get() / total;
+        }
+
+        /**
+         * 获取百分位数的近似值，返回所在桶的上限，且不超过最大值
+         *
+         * @param percentile 百分位，取值0-100
+         * @return 近似值
+         */
+        public long getPercentile(double percentile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(target, 1)) {
+                    long upper = i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                    return Math.min(upper, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{" +
+                    "count=" + getCount() +
+                    ", min=" + getMin() +
+                    ", mean=" + (long) getMean() +
+                    ", p50=" + getPercentile(50) +
+                    ", p99=" + getPercentile(99) +
+                    ", max=" + getMax() +
+                    '}';
+        }
+    }
+}
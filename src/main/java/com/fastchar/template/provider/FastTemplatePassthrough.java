@@ -0,0 +1,180 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.core.FastHandler;
+import com.fastchar.template.FastTemplateConfig;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.utils.FastFileUtils;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.ooxml.POIXMLDocument;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.util.TempFile;
+
+import java.io.*;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * OOXML模板中图片、嵌入对象等二进制部件的直通输出：
+ * 渲染时使用清空了二进制部件内容的模板，POI无需读取、校验及重新压缩这些部件，
+ * 输出时渲染结果先写入临时文件，再从中原样复制已压缩的XML部件，二进制部件则从原模板中原样复制，均不再解压及压缩；
+ * 二进制部件的总大小未达到 {@link FastTemplateConfig#getPassthroughMinSize()} 时不使用直通输出
+ */
+final class FastTemplatePassthrough {
+
+    private final byte[] template;
+    private final Set<String> binaryEntries;
+    private final long binarySize;
+    private volatile byte[] stripped;
+
+    private FastTemplatePassthrough(byte[] template, Set<String> binaryEntries, long binarySize) {
+        this.template = template;
+        this.binaryEntries = binaryEntries;
+        this.binarySize = binarySize;
+    }
+
+    /**
+     * 获取渲染模板的直通输出，同一模板只拆分一次
+     *
+     * @return 直通输出，模板不是OOXML格式或二进制部件的总大小未达到 {@link FastTemplateConfig#getPassthroughMinSize()} 时返回null
+     */
+    static FastTemplatePassthrough of(FastHandler handler) throws IOException {
+        Object value = handler.get("__template");
+        if (!(value instanceof FastCompiledTemplate)) {
+            return null;
+        }
+        FastCompiledTemplate compiledTemplate = (FastCompiledTemplate) value;
+        FastTemplatePassthrough passthrough = compiledTemplate.getIndex(FastTemplatePassthrough.class);
+        if (passthrough == null) {
+            byte[] content = compiledTemplate.getContent();
+            if (FileMagic.valueOf(content) != FileMagic.OOXML) {
+                return null;
+            }
+            passthrough = scan(content);
+            compiledTemplate.setIndex(passthrough);
+        }
+        if (passthrough.binaryEntries.isEmpty()
+                || passthrough.binarySize < FastChar.getConfig(FastTemplateConfig.class).getPassthroughMinSize()) {
+            return null;
+        }
+        return passthrough;
+    }
+
+    /**
+     * 是否为POI不解析内容的二进制部件，例如：word/media/image1.png、xl/embeddings/oleObject1.bin
+     */
+    private static boolean isBinaryEntry(String name) {
+        String lowerName = name.toLowerCase();
+        return !lowerName.endsWith("/") && !lowerName.endsWith(".xml") && !lowerName.endsWith(".rels") && !lowerName.endsWith(".vml");
+    }
+
+    /**
+     * 统计模板中的二进制部件及其压缩后的总大小
+     */
+    private static FastTemplatePassthrough scan(byte[] content) throws IOException {
+        Set<String> binaryEntries = new HashSet<>();
+        long binarySize = 0;
+        ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(content));
+        try {
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (isBinaryEntry(entry.getName())) {
+                    binaryEntries.add(entry.getName());
+                    binarySize += entry.getCompressedSize();
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+        return new FastTemplatePassthrough(content, binaryEntries, binarySize);
+    }
+
+    /**
+     * 清空二进制部件内容的模板，首次使用时生成
+     */
+    private byte[] getStripped() throws IOException {
+        byte[] bytes = stripped;
+        if (bytes != null) {
+            return bytes;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max((int) (template.length - binarySize), 8192));
+        ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(template));
+        try {
+            ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(outputStream);
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (binaryEntries.contains(entry.getName())) {
+                    ZipArchiveEntry emptyEntry = new ZipArchiveEntry(entry.getName());
+                    emptyEntry.setMethod(ZipArchiveEntry.STORED);
+                    emptyEntry.setSize(0);
+                    emptyEntry.setCompressedSize(0);
+                    emptyEntry.setCrc(new CRC32().getValue());
+                    zipOutputStream.addRawArchiveEntry(emptyEntry, new ByteArrayInputStream(new byte[0]));
+                } else {
+                    zipOutputStream.addRawArchiveEntry(entry, zipFile.getRawInputStream(entry));
+                }
+            }
+            zipOutputStream.finish();
+        } finally {
+            zipFile.close();
+        }
+        bytes = outputStream.toByteArray();
+        stripped = bytes;
+        return bytes;
+    }
+
+    /**
+     * 清空了二进制部件内容的模板，用于创建工作簿或文档
+     */
+    InputStream newInputStream() throws IOException {
+        return new ByteArrayInputStream(getStripped());
+    }
+
+    /**
+     * 写出渲染结果：先写入临时文件，再原样复制其中的部件，二进制部件替换为原模板中已压缩的内容
+     *
+     * @param document     使用 {@link #newInputStream()} 创建的工作簿或文档
+     * @param outputStream 输出流
+     */
+    void write(POIXMLDocument document, OutputStream outputStream) throws IOException {
+        File tempFile = TempFile.createTempFile("fastchar-template", ".zip");
+        try {
+            OutputStream fileOutputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+            try {
+                document.write(fileOutputStream);
+            } finally {
+                FastFileUtils.closeQuietly(fileOutputStream);
+            }
+            ZipFile renderedFile = new ZipFile(tempFile);
+            ZipFile templateFile = new ZipFile(new SeekableInMemoryByteChannel(template));
+            try {
+                ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(outputStream);
+                Enumeration<ZipArchiveEntry> entries = renderedFile.getEntriesInPhysicalOrder();
+                while (entries.hasMoreElements()) {
+                    ZipArchiveEntry entry = entries.nextElement();
+                    ZipArchiveEntry templateEntry = binaryEntries.contains(entry.getName()) ? templateFile.getEntry(entry.getName()) : null;
+                    if (templateEntry != null) {
+                        zipOutputStream.addRawArchiveEntry(templateEntry, templateFile.getRawInputStream(templateEntry));
+                    } else {
+                        zipOutputStream.addRawArchiveEntry(entry, renderedFile.getRawInputStream(entry));
+                    }
+                }
+                zipOutputStream.finish();
+            } finally {
+                renderedFile.close();
+                templateFile.close();
+            }
+        } finally {
+            if (!tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+}
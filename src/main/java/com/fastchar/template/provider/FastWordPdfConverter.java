@@ -0,0 +1,130 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.FastTemplateConfig;
+import com.fastchar.utils.FastFileUtils;
+import fr.opensagres.poi.xwpf.converter.pdf.PdfConverter;
+import fr.opensagres.poi.xwpf.converter.pdf.PdfOptions;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Word文档转换PDF，基于纯Java的 xdocreport 转换器，直接转换内存中的 XWPFDocument，不生成中间docx文件，也不启动外部进程。
+ * 需引入可选依赖 fr.opensagres.xdocreport:fr.opensagres.poi.xwpf.converter.pdf；
+ * 转换器首次使用时预热（加载转换类及字体），同时转换的数量由 {@link FastTemplateConfig#getPdfConcurrency()} 限制
+ */
+public class FastWordPdfConverter {
+
+    private static final String CONVERTER_CLASS = "fr.opensagres.poi.xwpf.converter.pdf.PdfConverter";
+
+    private static volatile Boolean supported;
+
+    private static volatile Semaphore permits;
+
+    private static volatile boolean warmed;
+
+    /**
+     * 是否已引入PDF转换依赖
+     */
+    public static boolean isSupported() {
+        if (supported == null) {
+            try {
+                Class.forName(CONVERTER_CLASS, false, FastWordPdfConverter.class.getClassLoader());
+                supported = true;
+            } catch (Throwable e) {
+                supported = false;
+            }
+        }
+        return supported;
+    }
+
+    /**
+     * 预热转换器，可在系统启动时调用，避免首次输出PDF时加载转换类及字体的耗时，重复调用无效
+     */
+    public static void warmUp() {
+        if (warmed || !isSupported()) {
+            return;
+        }
+        synchronized (FastWordPdfConverter.class) {
+            if (warmed) {
+                return;
+            }
+            XWPFDocument document = new XWPFDocument();
+            try {
+                document.createParagraph().createRun().setText("FastChar-Template PDF 0123456789");
+                Converter.convert(document, new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                    }
+                });
+            } catch (Exception e) {
+                FastChar.getLogger().error(FastWordPdfConverter.class, e);
+            } finally {
+                FastFileUtils.closeQuietly(document);
+                warmed = true;
+            }
+        }
+    }
+
+    /**
+     * 将文档转换为PDF，输出流写入完毕后不会关闭
+     *
+     * @param document     Word文档
+     * @param outputStream 输出流
+     */
+    public static void convert(XWPFDocument document, OutputStream outputStream) throws Exception {
+        if (!isSupported()) {
+            throw new IllegalStateException("输出PDF需引入依赖 fr.opensagres.xdocreport:fr.opensagres.poi.xwpf.converter.pdf！");
+        }
+        warmUp();
+        Semaphore semaphore = getPermits();
+        semaphore.acquire();
+        try {
+            //转换结束时会关闭输出流，此处包装后只刷新不关闭
+            Converter.convert(document, new FilterOutputStream(outputStream) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            });
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private static Semaphore getPermits() {
+        if (permits == null) {
+            synchronized (FastWordPdfConverter.class) {
+                if (permits == null) {
+                    permits = new Semaphore(Math.max(FastChar.getConfig(FastTemplateConfig.class).getPdfConcurrency(), 1), true);
+                }
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * 引用转换依赖的代码单独放在内部类中，未引入依赖时外部类仍可正常加载
+     */
+    private static final class Converter {
+
+        private static final PdfOptions OPTIONS = PdfOptions.create();
+
+        private static void convert(XWPFDocument document, OutputStream outputStream) throws Exception {
+            PdfConverter.getInstance().convert(document, outputStream, OPTIONS);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.template.info.FastTemplatePlaceholder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Word模板的变量位置索引，按正文顺序记录包含变量的段落及表格，解析后只读
+ */
+final class FastWordTemplateIndex {
+
+    private final List<BodyIndex> elements = new ArrayList<>();
+
+    /**
+     * 包含变量的正文元素，按正文顺序排列
+     */
+    List<BodyIndex> getElements() {
+        return elements;
+    }
+
+    static final class BodyIndex {
+        private final int position;
+        private final TableIndex table;
+
+        BodyIndex(int position, TableIndex table) {
+            this.position = position;
+            this.table = table;
+        }
+
+        /**
+         * 元素在正文中的下标
+         */
+        int getPosition() {
+            return position;
+        }
+
+        /**
+         * 表格索引，元素为段落时返回null
+         */
+        TableIndex getTable() {
+            return table;
+        }
+    }
+
+    static final class TableIndex {
+        private final int maxCell;
+        private final List<int[]> paragraphs = new ArrayList<>();
+        private final List<ListCellIndex> listCells = new ArrayList<>();
+
+        TableIndex(int maxCell) {
+            this.maxCell = maxCell;
+        }
+
+        int getMaxCell() {
+            return maxCell;
+        }
+
+        /**
+         * 包含变量的段落位置：{行, 单元格, 段落}
+         */
+        List<int[]> getParagraphs() {
+            return paragraphs;
+        }
+
+        List<ListCellIndex> getListCells() {
+            return listCells;
+        }
+    }
+
+    /**
+     * 列表单元格，按段落保存文本及变量，展开的行按相同的段落结构生成
+     */
+    static final class ListCellIndex {
+        private final int row;
+        private final int cell;
+        private final List<String> texts;
+        private final List<List<FastTemplatePlaceholder>> placeholders;
+        private final List<String> listKeys;
+
+        ListCellIndex(int row, int cell, List<String> texts, List<List<FastTemplatePlaceholder>> placeholders, List<String> listKeys) {
+            this.row = row;
+            this.cell = cell;
+            this.texts = texts;
+            this.placeholders = placeholders;
+            this.listKeys = listKeys;
+        }
+
+        int getRow() {
+            return row;
+        }
+
+        int getCell() {
+            return cell;
+        }
+
+        /**
+         * 单元格的段落数
+         */
+        int getParagraphCount() {
+            return texts.size();
+        }
+
+        String getText(int paragraph) {
+            return texts.get(paragraph);
+        }
+
+        List<FastTemplatePlaceholder> getPlaceholders(int paragraph) {
+            return placeholders.get(paragraph);
+        }
+
+        List<String> getListKeys() {
+            return listKeys;
+        }
+    }
+}
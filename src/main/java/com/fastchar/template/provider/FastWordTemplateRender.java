@@ -2,24 +2,27 @@ package com.fastchar.template.provider;
 
 import com.fastchar.core.FastChar;
 import com.fastchar.core.FastHandler;
+import com.fastchar.template.FastTemplateContext;
 import com.fastchar.template.FastTemplateHelper;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.info.FastTemplateMetrics;
+import com.fastchar.template.info.FastTemplatePlaceholder;
 import com.fastchar.template.info.FastWordTableInfo;
 import com.fastchar.template.interfaces.IFastTemplateRender;
 import com.fastchar.utils.FastFileUtils;
-import com.fastchar.utils.FastNumberUtils;
-import com.fastchar.utils.FastStringUtils;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.impl.xb.xmlschema.SpaceAttribute;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.*;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Word模板渲染器，变量格式${*} 注意：为了避免word分割格式${*} 请使用复制粘贴的方式到word中！！
@@ -28,24 +31,51 @@ import java.util.regex.Pattern;
  * @date 2021/12/6 17:11
  */
 public class FastWordTemplateRender implements IFastTemplateRender {
-    private static final Pattern PLACE_HOLDER_PATTERN = Pattern.compile("(\\$\\{(.*)})", Pattern.DOTALL);
-    private static final Pattern PLACE_HOLDER_LIST_PATTERN = Pattern.compile("([^${}]*)\\[i]", Pattern.DOTALL);
-
     @Override
     public void onRender(FastHandler handler, InputStream templateInputStream, OutputStream newFileOutStream) {
-        if (!FastFileUtils.isWordFile(handler.getString("__fileName"))) {
-            return;
-        }
         handler.setCode(0);
         XWPFDocument document = null;
         try {
-            document = new XWPFDocument(OPCPackage.open(templateInputStream));
-            wrapListTable(handler, document);
-            renderNormal(handler, document);
-            renderTables(handler, document);
-            document.write(newFileOutStream);
+            FastTemplateMetrics metrics = FastTemplateMetrics.of(handler);
+            long beginTime = System.nanoTime();
+            Object fileName = handler.get("__fileName");
+            if (fileName != null && fileName.toString().toLowerCase().endsWith(".zip")) {
+                throw new IllegalArgumentException("Word模板不支持输出zip！");
+            }
+            //输出PDF时转换器需读取图片等部件，不使用直通输出
+            boolean pdf = isPdf(handler);
+            FastTemplatePassthrough passthrough = pdf ? null : FastTemplatePassthrough.of(handler);
+            document = new XWPFDocument(OPCPackage.open(passthrough != null ? passthrough.newInputStream() : templateInputStream));
+            metrics.addPhase(FastTemplateMetrics.PHASE_PARSE, System.nanoTime() - beginTime);
+
+            beginTime = System.nanoTime();
+            FastWordTemplateIndex templateIndex = getTemplateIndex(handler, document);
+            metrics.addPhase(FastTemplateMetrics.PHASE_INDEX, System.nanoTime() - beginTime);
+
+            beginTime = System.nanoTime();
+            List<IBodyElement> bodyElements = new ArrayList<>(document.getBodyElements());
+            for (FastWordTemplateIndex.BodyIndex bodyIndex : templateIndex.getElements()) {
+                IBodyElement bodyElement = bodyElements.get(bodyIndex.getPosition());
+                if (bodyIndex.getTable() == null) {
+                    replaceParagraph(handler, (XWPFParagraph) bodyElement);
+                } else {
+                    renderTable(handler, (XWPFTable) bodyElement, bodyIndex.getTable());
+                }
+            }
+            metrics.addPhase(FastTemplateMetrics.PHASE_RENDER, System.nanoTime() - beginTime);
+
+            beginTime = System.nanoTime();
+            if (pdf) {
+                FastWordPdfConverter.convert(document, newFileOutStream);
+            } else if (passthrough != null) {
+                passthrough.write(document, newFileOutStream);
+            } else {
+                document.write(newFileOutStream);
+            }
+            metrics.addPhase(FastTemplateMetrics.PHASE_WRITE, System.nanoTime() - beginTime);
         } catch (Exception e) {
             FastChar.getLogger().error(this.getClass(), e);
+            handler.put("__exception", e);
         } finally {
             FastFileUtils.closeQuietly(document);
             FastFileUtils.closeQuietly(templateInputStream);
@@ -53,140 +83,311 @@ public class FastWordTemplateRender implements IFastTemplateRender {
         }
     }
 
-    private void wrapListTable(FastHandler handler, XWPFDocument document) {
-        List<XWPFTable> tables = document.getTables();
-        for (XWPFTable table : tables) {
-            Map<Integer, String> cellPatternMap = new HashMap<>();
-            Map<Integer, XWPFTableCell> cellMap = new HashMap<>();
-
-            int maxRowData = 0;
-            int maxCell = 0;
-
-            for (XWPFTableRow row : table.getRows()) {
-                List<XWPFTableCell> tableCells = row.getTableCells();
-
-                for (int i = 0; i < tableCells.size(); i++) {
-                    maxCell = Math.max(maxCell, i);
+    /**
+     * 输出的文件名是否为pdf
+     */
+    private boolean isPdf(FastHandler handler) {
+        Object fileName = handler.get("__fileName");
+        return fileName != null && fileName.toString().toLowerCase().endsWith(".pdf");
+    }
 
-                    XWPFTableCell cell = tableCells.get(i);
-                    String text = cell.getText();
-                    Matcher matcher = PLACE_HOLDER_PATTERN.matcher(text);
+    /**
+     * 获取模板的变量位置索引，模板已解析过时直接复用
+     */
+    private FastWordTemplateIndex getTemplateIndex(FastHandler handler, XWPFDocument document) {
+        FastCompiledTemplate compiledTemplate = null;
+        Object template = handler.get("__template");
+        if (template instanceof FastCompiledTemplate) {
+            compiledTemplate = (FastCompiledTemplate) template;
+            FastWordTemplateIndex templateIndex = compiledTemplate.getIndex(FastWordTemplateIndex.class);
+            if (templateIndex != null) {
+                return templateIndex;
+            }
+        }
+        FastWordTemplateIndex templateIndex = new FastWordTemplateIndex();
+        List<IBodyElement> bodyElements = document.getBodyElements();
+        for (int position = 0; position < bodyElements.size(); position++) {
+            IBodyElement bodyElement = bodyElements.get(position);
+            if (bodyElement instanceof XWPFParagraph) {
+                if (((XWPFParagraph) bodyElement).getText().contains("${")) {
+                    templateIndex.getElements().add(new FastWordTemplateIndex.BodyIndex(position, null));
+                }
+            } else if (bodyElement instanceof XWPFTable) {
+                XWPFTable table = (XWPFTable) bodyElement;
+                //表格文本在加载文档时已拼接，可直接用于预检
+                if (!table.getText().contains("${")) {
+                    continue;
+                }
+                FastWordTemplateIndex.TableIndex tableIndex = getTableIndex(table);
+                if (!tableIndex.getParagraphs().isEmpty()) {
+                    templateIndex.getElements().add(new FastWordTemplateIndex.BodyIndex(position, tableIndex));
+                }
+            }
+        }
+        if (compiledTemplate != null) {
+            compiledTemplate.setIndex(templateIndex);
+        }
+        return templateIndex;
+    }
 
-                    boolean hasList = false;
-                    while (matcher.find()) {
-                        String key = matcher.group(2).trim();
-                        if (key.contains("[i]")) {
-                            Matcher listMatcher = PLACE_HOLDER_LIST_PATTERN.matcher(key);
-                            while (listMatcher.find()) {
-                                maxRowData = Math.max(maxRowData, FastNumberUtils.formatToInt(FastTemplateHelper.renderData(handler, listMatcher.group(1) + ".length")));
-                            }
-                            hasList = true;
-                        }
+    private FastWordTemplateIndex.TableIndex getTableIndex(XWPFTable table) {
+        int maxCell = 0;
+        for (XWPFTableRow row : table.getRows()) {
+            maxCell = Math.max(maxCell, row.getTableCells().size() - 1);
+        }
+        FastWordTemplateIndex.TableIndex tableIndex = new FastWordTemplateIndex.TableIndex(maxCell);
+
+        List<XWPFTableRow> rows = table.getRows();
+        for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+            List<XWPFTableCell> tableCells = rows.get(rowIndex).getTableCells();
+            for (int cellIndex = 0; cellIndex < tableCells.size(); cellIndex++) {
+                XWPFTableCell cell = tableCells.get(cellIndex);
+                List<XWPFParagraph> cellParagraphs = cell.getParagraphs();
+                boolean hasPlaceholder = false;
+                for (int paragraphIndex = 0; paragraphIndex < cellParagraphs.size(); paragraphIndex++) {
+                    if (cellParagraphs.get(paragraphIndex).getText().contains("${")) {
+                        tableIndex.getParagraphs().add(new int[]{rowIndex, cellIndex, paragraphIndex});
+                        hasPlaceholder = true;
                     }
-                    if (hasList) {
-                        cell.setText(text.replace("[i]", "[0]"));
-                        cellPatternMap.put(i, text);
-                        cellMap.put(i, cell);
+                }
+                if (!hasPlaceholder) {
+                    continue;
+                }
+
+                //列表单元格按段落记录，多个段落的单元格展开后保持原段落结构
+                List<String> texts = new ArrayList<>();
+                List<List<FastTemplatePlaceholder>> placeholders = new ArrayList<>();
+                List<String> listKeys = new ArrayList<>();
+                for (XWPFParagraph cellParagraph : cellParagraphs) {
+                    String text = cellParagraph.getText();
+                    List<FastTemplatePlaceholder> paragraphPlaceholders = FastTemplatePlaceholder.parse(text);
+                    for (FastTemplatePlaceholder placeholder : paragraphPlaceholders) {
+                        listKeys.addAll(placeholder.getListKeys());
                     }
+                    texts.add(text);
+                    placeholders.add(paragraphPlaceholders);
+                }
+                if (!listKeys.isEmpty()) {
+                    tableIndex.getListCells().add(new FastWordTemplateIndex.ListCellIndex(rowIndex, cellIndex, texts, placeholders, listKeys));
                 }
             }
+        }
+        return tableIndex;
+    }
 
-            for (int i = 1; i < maxRowData; i++) {
-                XWPFTableRow row = table.createRow();
-                for (int i1 = 0; i1 <= maxCell; i1++) {
-                    XWPFTableCell cell = row.getCell(i1);
-                    if (cell == null) {
-                        cell = row.createCell();
-                    }
-                    String cellPattern = cellPatternMap.get(i1);
-                    if (FastStringUtils.isEmpty(cellPattern)) {
-                        cellPattern = "";
-                    }
+    /**
+     * 渲染表格，列表单元格展开与变量替换在同一次遍历中完成
+     */
+    private void renderTable(FastHandler handler, XWPFTable table, FastWordTemplateIndex.TableIndex tableIndex) {
+        Map<Integer, FastWordTemplateIndex.ListCellIndex> listCellMap = new HashMap<>();
+        Map<Integer, XWPFTableCell> cellMap = new HashMap<>();
+        FastTemplateContext templateContext = FastTemplateContext.of(handler);
+        int maxRowData = 0;
+        List<String> rowsKeys = new ArrayList<>();
+        for (FastWordTemplateIndex.ListCellIndex listCell : tableIndex.getListCells()) {
+            for (String listKey : listCell.getListKeys()) {
+                int listSize = templateContext.getListSize(listKey);
+                if (listSize < 0) {
+                    rowsKeys.add(listKey);
+                } else {
+                    maxRowData = Math.max(maxRowData, listSize);
+                }
+            }
+            listCellMap.put(listCell.getCell(), listCell);
+            cellMap.put(listCell.getCell(), table.getRow(listCell.getRow()).getCell(listCell.getCell()));
+        }
 
-                    XWPFTableCell sourceCell = cellMap.get(i1);
-                    if (sourceCell != null) {
-                        cell.getCTTc().setTcPr(sourceCell.getCTTc().getTcPr());
-                    }
+        for (int[] position : tableIndex.getParagraphs()) {
+            XWPFTableCell cell = table.getRow(position[0]).getCell(position[1]);
+            FastWordTemplateIndex.ListCellIndex listCell = listCellMap.get(position[1]);
+            if (listCell != null && listCell.getRow() == position[0]) {
+                XWPFParagraph paragraph = cell.getParagraphs().get(position[2]);
+                setParagraphText(paragraph, paragraph, renderText(handler, listCell, position[2], 0));
+                continue;
+            }
+            replaceParagraph(handler, cell.getParagraphs().get(position[2]));
+        }
 
-                    cell.setText(cellPattern.replace("[i]", "[" + i + "]"));
+        if (tableIndex.getListCells().isEmpty()) {
+            return;
+        }
+        int maxCell = tableIndex.getMaxCell();
+        int rowCount = 1;
+        //按顺序读取的行数据源无法预知行数，逐行读取直到数据源结束
+        for (int i = 1; i < maxRowData || hasListRow(templateContext, rowsKeys, i); i++) {
+            XWPFTableRow row = table.createRow();
+            for (int i1 = 0; i1 <= maxCell; i1++) {
+                XWPFTableCell cell = row.getCell(i1);
+                if (cell == null) {
+                    cell = row.createCell();
+                }
+                XWPFTableCell sourceCell = cellMap.get(i1);
+                if (sourceCell != null) {
+                    cell.getCTTc().setTcPr(sourceCell.getCTTc().getTcPr());
+                }
+                FastWordTemplateIndex.ListCellIndex listCell = listCellMap.get(i1);
+                if (listCell == null) {
+                    setCellText(cell, "");
+                    continue;
+                }
+                List<XWPFParagraph> sourceParagraphs = sourceCell.getParagraphs();
+                for (int paragraphIndex = 0; paragraphIndex < listCell.getParagraphCount(); paragraphIndex++) {
+                    XWPFParagraph paragraph = paragraphIndex < cell.getParagraphs().size() ? cell.getParagraphs().get(paragraphIndex) : cell.addParagraph();
+                    XWPFParagraph sourceParagraph = sourceParagraphs.get(paragraphIndex);
+                    if (sourceParagraph.getCTP().getPPr() != null) {
+                        paragraph.getCTP().setPPr(sourceParagraph.getCTP().getPPr());
+                    }
+                    setParagraphText(paragraph, sourceParagraph, renderText(handler, listCell, paragraphIndex, i));
                 }
             }
+            rowCount++;
         }
+        templateContext.getMetrics().addRows(rowCount);
     }
 
-    private void renderNormal(FastHandler handler, XWPFDocument document) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        for (XWPFParagraph paragraph : paragraphs) {
-            replaceParagraph(handler, paragraph);
+    private boolean hasListRow(FastTemplateContext templateContext, List<String> rowsKeys, int rowIndex) {
+        boolean hasRow = false;
+        for (String rowsKey : rowsKeys) {
+            //每个数据源都需读取至该行，保证同一行的变量取到相同下标的数据
+            hasRow = templateContext.hasListRow(rowsKey, rowIndex) || hasRow;
         }
+        return hasRow;
     }
 
-    private void renderTables(FastHandler handler, XWPFDocument document) {
-        List<XWPFTable> tables = document.getTables();
-        for (XWPFTable table : tables) {
-            for (XWPFTableRow row : table.getRows()) {
-                List<XWPFTableCell> tableCells = row.getTableCells();
-                for (XWPFTableCell tableCell : tableCells) {
-                    for (XWPFParagraph paragraph : tableCell.getParagraphs()) {
-                        replaceParagraph(handler, paragraph);
-                    }
-                }
+    private String renderText(FastHandler handler, FastWordTemplateIndex.ListCellIndex listCell, int paragraph, int listIndex) {
+        String text = listCell.getText(paragraph);
+        StringBuilder builder = new StringBuilder(text.length());
+        int lastEnd = 0;
+        for (FastTemplatePlaceholder placeholder : listCell.getPlaceholders(paragraph)) {
+            builder.append(text, lastEnd, placeholder.getStart());
+            Object invokeValue = FastTemplateHelper.renderData(handler, placeholder, listIndex);
+            if (invokeValue != null) {
+                builder.append(invokeValue);
             }
+            lastEnd = placeholder.getEnd();
         }
+        builder.append(text, lastEnd, text.length());
+        return builder.toString();
     }
 
+    /**
+     * 替换单元格首个段落的文本，XWPFTableCell.setText 只会追加文本
+     */
+    private void setCellText(XWPFTableCell cell, String text) {
+        List<XWPFParagraph> paragraphs = cell.getParagraphs();
+        XWPFParagraph paragraph = paragraphs.isEmpty() ? cell.addParagraph() : paragraphs.get(0);
+        setParagraphText(paragraph, paragraph, text);
+    }
 
+    /**
+     * 替换段落的文本，沿用模板段落首个文本块的格式
+     *
+     * @param paragraph       需替换文本的段落
+     * @param sourceParagraph 模板中对应的段落，可与 paragraph 相同
+     */
+    private void setParagraphText(XWPFParagraph paragraph, XWPFParagraph sourceParagraph, String text) {
+        CTRPr runPr = null;
+        if (!sourceParagraph.getRuns().isEmpty()) {
+            runPr = sourceParagraph.getRuns().get(0).getCTR().getRPr();
+        }
+        XWPFRun run = paragraph.createRun();
+        if (runPr != null) {
+            run.getCTR().setRPr(runPr);
+        }
+        for (int i = paragraph.getRuns().size() - 2; i >= 0; i--) {
+            paragraph.removeRun(i);
+        }
+        run.setText(text);
+        formatBreakLine(run);
+    }
+
+    /**
+     * 替换段落中的变量，变量可跨越多个文本块，替换后的值写入变量起始所在的文本块以保留其格式，变量覆盖的其他文本块内容被移除
+     */
     private void replaceParagraph(FastHandler handler, XWPFParagraph paragraph) {
-        List<XWPFRun> unMatchedRun = new ArrayList<>();
-        for (XWPFRun run : paragraph.getRuns()) {
-            int textPosition = Math.max(run.getTextPosition(), 0);
-            String text = toText(unMatchedRun) + run.getText(textPosition);
-            if (FastStringUtils.isEmpty(text)) {
-                continue;
-            }
-            boolean hasChange = false;
-            Matcher matcher = PLACE_HOLDER_PATTERN.matcher(text);
-            while (matcher.find()) {
-                hasChange = true;
-                String whole = matcher.group(1);
-                String key = matcher.group(2).trim();
+        List<XWPFRun> runs = paragraph.getRuns();
+        int runCount = runs.size();
+        String[] runTexts = new String[runCount];
+        int[] runStarts = new int[runCount + 1];
+        StringBuilder textBuilder = new StringBuilder();
+        for (int i = 0; i < runCount; i++) {
+            String runText = runs.get(i).getText(0);
+            runTexts[i] = runText == null ? "" : runText;
+            runStarts[i] = textBuilder.length();
+            textBuilder.append(runTexts[i]);
+        }
+        runStarts[runCount] = textBuilder.length();
 
-                Object invokeValue = FastTemplateHelper.renderData(handler, key);
-                if (invokeValue == null) {
-                    invokeValue = "";
-                }
+        String text = textBuilder.toString();
+        List<FastTemplatePlaceholder> placeholders = FastTemplatePlaceholder.parse(text);
+        if (placeholders.isEmpty()) {
+            return;
+        }
 
-                if (invokeValue instanceof FastWordTableInfo) {
-                    createTable(paragraph, (FastWordTableInfo) invokeValue);
-                    text = "";
-                    continue;
-                }
-                text = text.replace(whole, invokeValue.toString());
+        StringBuilder[] newTexts = new StringBuilder[runCount];
+        int runIndex = 0;
+        int lastEnd = 0;
+        for (FastTemplatePlaceholder placeholder : placeholders) {
+            Object invokeValue = FastTemplateHelper.renderData(handler, placeholder.getKey());
+            if (invokeValue instanceof FastWordTableInfo) {
+                createTable(paragraph, (FastWordTableInfo) invokeValue);
+                invokeValue = null;
             }
-            if (hasChange) {
-                clearText(unMatchedRun);
-                unMatchedRun.clear();
-                run.setText(text, textPosition);
-                formatBreakLine(run);
+
+            //上一个变量与当前变量之间的文本保留在各自的文本块中
+            runIndex = appendText(newTexts, runTexts, runStarts, runIndex, lastEnd, placeholder.getStart());
+            while (runStarts[runIndex + 1] <= placeholder.getStart()) {
+                runIndex++;
+            }
+            StringBuilder newText = getNewText(newTexts, runTexts, runStarts, runIndex, placeholder.getStart());
+            if (invokeValue != null) {
+                newText.append(invokeValue);
+            }
+            //变量覆盖的其他文本块内容清空
+            while (runStarts[runIndex + 1] < placeholder.getEnd()) {
+                runIndex++;
+                getNewText(newTexts, runTexts, runStarts, runIndex, runStarts[runIndex]);
+            }
+            lastEnd = placeholder.getEnd();
+        }
+        appendText(newTexts, runTexts, runStarts, runIndex, lastEnd, text.length());
+
+        for (int i = 0; i < runCount; i++) {
+            if (newTexts[i] == null || (runTexts[i].isEmpty() && newTexts[i].length() == 0)) {
+                continue;
             }
-            unMatchedRun.add(run);
+            XWPFRun run = runs.get(i);
+            run.setText(newTexts[i].toString(), 0);
+            formatBreakLine(run);
         }
     }
 
-    private String toText(List<XWPFRun> runs) {
-        StringBuilder stringBuilder = new StringBuilder();
-        for (XWPFRun run : runs) {
-            int textPosition = Math.max(run.getTextPosition(), 0);
-            stringBuilder.append(run.getText(textPosition));
+    /**
+     * 将原文本[from, to)按所属文本块追加到已修改的文本块中，返回最后经过的文本块下标
+     */
+    private int appendText(StringBuilder[] newTexts, String[] runTexts, int[] runStarts, int runIndex, int from, int to) {
+        while (from < to) {
+            while (runStarts[runIndex + 1] <= from) {
+                runIndex++;
+            }
+            int end = Math.min(to, runStarts[runIndex + 1]);
+            if (newTexts[runIndex] != null) {
+                newTexts[runIndex].append(runTexts[runIndex], from - runStarts[runIndex], end - runStarts[runIndex]);
+            }
+            from = end;
         }
-        return stringBuilder.toString();
+        return runIndex;
     }
 
-    private void clearText(List<XWPFRun> runs) {
-        for (XWPFRun run : runs) {
-            int textPosition = Math.max(run.getTextPosition(), 0);
-            run.setText("", textPosition);
+    /**
+     * 获取文本块的新文本，首次获取时保留文本块中position之前的原文本
+     */
+    private StringBuilder getNewText(StringBuilder[] newTexts, String[] runTexts, int[] runStarts, int runIndex, int position) {
+        if (newTexts[runIndex] == null) {
+            newTexts[runIndex] = new StringBuilder(runTexts[runIndex].length())
+                    .append(runTexts[runIndex], 0, position - runStarts[runIndex]);
         }
+        return newTexts[runIndex];
     }
 
     private void formatBreakLine(XWPFRun run) {
@@ -203,50 +404,88 @@ public class FastWordTemplateRender implements IFastTemplateRender {
     }
 
 
+    /**
+     * 在段落前插入表格，先直接写入表格的XML行（所有行和单元格共用同一份属性），再由完整的XML创建表格对象，保证表格对象与XML一致
+     */
     private void createTable(XWPFParagraph paragraph, FastWordTableInfo wordTableInfo) {
-
-        if (wordTableInfo.getValues() == null || wordTableInfo.getValues().isEmpty()) {
+        Iterator<? extends List<?>> iterator = wordTableInfo.iterator();
+        if (iterator == null || !iterator.hasNext()) {
             return;
         }
-
-        int rows = wordTableInfo.getValues().size();
-        int cols = wordTableInfo.getValues().get(0).size();
+        List<?> firstValues = iterator.next();
+        int cols = firstValues.size();
         if (wordTableInfo.getTitles() != null && !wordTableInfo.getTitles().isEmpty()) {
-            rows += 1;
             cols = wordTableInfo.getTitles().size();
         }
 
+        IBody body = paragraph.getBody();
         XmlCursor cursor = paragraph.getCTP().newCursor();
-        XWPFTable xwpfTable = paragraph.getDocument().insertNewTbl(cursor);
-
-        for (int i = 1; i < cols; i++) {
-            xwpfTable.getRow(0).createCell();
+        cursor.beginElement("tbl", CTTbl.type.getName().getNamespaceURI());
+        cursor.toParent();
+        CTTbl ctTbl = (CTTbl) cursor.getObject();
+        cursor.dispose();
+
+        //空表格创建时生成默认的表格属性及一行一列，以此作为行和单元格的属性模板，移除前先复制
+        new XWPFTable(ctTbl, body);
+        CTRow templateRow = ctTbl.getTrArray(0);
+        CTTc templateCell = templateRow.getTcArray(0);
+        TableTemplate tableTemplate = new TableTemplate();
+        tableTemplate.cols = cols;
+        if (templateRow.getTrPr() != null) {
+            tableTemplate.rowPr = (CTTrPr) templateRow.getTrPr().copy();
         }
-
-        for (int i = 1; i < rows; i++) {
-            xwpfTable.createRow();
+        if (templateCell.getTcPr() != null) {
+            tableTemplate.cellPr = (CTTcPr) templateCell.getTcPr().copy();
+        }
+        if (templateCell.sizeOfPArray() > 0 && templateCell.getPArray(0).getPPr() != null) {
+            tableTemplate.paragraphPr = (CTPPr) templateCell.getPArray(0).getPPr().copy();
         }
+        ctTbl.removeTr(0);
 
-        fillTable(xwpfTable, wordTableInfo);
+        if (wordTableInfo.getTitles() != null && !wordTableInfo.getTitles().isEmpty()) {
+            addTableRow(ctTbl, tableTemplate, wordTableInfo.getTitles());
+        }
+        addTableRow(ctTbl, tableTemplate, firstValues);
+        while (iterator.hasNext()) {
+            addTableRow(ctTbl, tableTemplate, iterator.next());
+        }
+        body.insertTable(body.getBodyElements().indexOf(paragraph), new XWPFTable(ctTbl, body));
     }
 
-    private void fillTable(XWPFTable table, FastWordTableInfo tableInfo) {
-
-        int beginRow = 0;
-        if (tableInfo.getTitles() != null) {
-            for (int i = 0; i < tableInfo.getTitles().size(); i++) {
-                table.getRow(0).getCell(i).setText(tableInfo.getTitles().get(i));
-                beginRow = 1;
-            }
+    private void addTableRow(CTTbl ctTbl, TableTemplate tableTemplate, List<?> values) {
+        CTRow row = ctTbl.addNewTr();
+        if (tableTemplate.rowPr != null) {
+            row.setTrPr(tableTemplate.rowPr);
         }
-
-        for (int i = 0; i < tableInfo.getValues().size(); i++) {
-            XWPFTableRow row = table.getRow(beginRow + i);
-            List<Object> values = tableInfo.getValues().get(i);
-            for (int i1 = 0; i1 < values.size(); i1++) {
-                row.getCell(i1).setText(String.valueOf(values.get(i1)));
+        for (int i = 0; i < tableTemplate.cols; i++) {
+            CTTc cell = row.addNewTc();
+            if (tableTemplate.cellPr != null) {
+                cell.setTcPr(tableTemplate.cellPr);
+            }
+            CTP cellParagraph = cell.addNewP();
+            if (tableTemplate.paragraphPr != null) {
+                cellParagraph.setPPr(tableTemplate.paragraphPr);
+            }
+            Object value = values != null && i < values.size() ? values.get(i) : null;
+            if (value == null) {
+                continue;
+            }
+            String text = String.valueOf(value);
+            if (text.isEmpty()) {
+                continue;
+            }
+            CTText ctText = cellParagraph.addNewR().addNewT();
+            ctText.setStringValue(text);
+            if (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1))) {
+                ctText.setSpace(SpaceAttribute.Space.PRESERVE);
             }
         }
     }
 
+    private static class TableTemplate {
+        private int cols;
+        private CTTrPr rowPr;
+        private CTTcPr cellPr;
+        private CTPPr paragraphPr;
+    }
 }
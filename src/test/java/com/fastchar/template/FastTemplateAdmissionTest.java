@@ -0,0 +1,191 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.core.FastHandler;
+import com.fastchar.template.info.FastCompiledTemplate;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 渲染准入控制的测试：按估算内存分队列排队，较小的渲染优先准入，排队已满或超时时拒绝
+ */
+public class FastTemplateAdmissionTest {
+
+    private FastTemplateConfig templateConfig;
+
+    private long budget;
+
+    private long queueSize;
+
+    private long timeout;
+
+    private long agingTime;
+
+    private FastCompiledTemplate template;
+
+    /**
+     * 模板本身的估算内存，与 FastTemplateAdmission 中的倍数一致
+     */
+    private long templateBytes;
+
+    private final List<FastHandler> admitted = new ArrayList<>();
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        budget = templateConfig.getAdmissionBudget();
+        queueSize = templateConfig.getAdmissionQueueSize();
+        timeout = templateConfig.getAdmissionTimeout();
+        agingTime = templateConfig.getAdmissionAgingTime();
+
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("admission").createRow(0).createCell(0).setCellValue("${title}");
+        template = FastTemplateCache.get(FastTestTemplates.write(workbook));
+        templateBytes = template.getContent().length * 20L;
+        //只有模板的渲染为小渲染，预算的1/4以上为大渲染
+        templateConfig.setAdmissionBudget(templateBytes * 64).setAdmissionAgingTime(0);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        for (FastHandler handler : admitted) {
+            FastTemplateAdmission.release(handler);
+        }
+        executor.shutdownNow();
+        templateConfig.setAdmissionBudget(budget)
+                .setAdmissionQueueSize((int) queueSize)
+                .setAdmissionTimeout(timeout)
+                .setAdmissionAgingTime(agingTime);
+    }
+
+    /**
+     * 创建数据中列表行数为rows的渲染句柄，每行估算4KB
+     */
+    private static FastHandler handler(int rows) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("list", Collections.nCopies(rows, null));
+        FastHandler handler = new FastHandler();
+        handler.put("__data", data);
+        return handler;
+    }
+
+    private FastHandler acquire(int rows) throws Exception {
+        FastHandler handler = handler(rows);
+        FastTemplateAdmission.acquire(handler, template);
+        admitted.add(handler);
+        return handler;
+    }
+
+    private Future<?> acquireAsync(final FastHandler handler) {
+        return executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                FastTemplateAdmission.acquire(handler, template);
+                return null;
+            }
+        });
+    }
+
+    private static void awaitQueueDepth(int sizeClass, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (FastTemplateAdmission.getQueueDepth(sizeClass) != depth) {
+            assertTrue("等待排队超时", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 修正占用的估算内存，使其为模板估算内存的倍数
+     */
+    private void adjust(FastHandler handler, long times) {
+        FastTemplateAdmission.adjust(handler, (templateBytes * times - templateBytes) / 512);
+    }
+
+    @Test
+    public void smallRenderAdmittedFirst() throws Exception {
+        templateConfig.setAdmissionTimeout(5000);
+        long usedBytes = FastTemplateAdmission.getUsedBytes();
+        //估算内存超过预算时按预算计算，占满全部预算
+        FastHandler full = acquire(1000000);
+        assertEquals(usedBytes + templateBytes * 64, FastTemplateAdmission.getUsedBytes());
+
+        //大渲染约21倍、中渲染约9倍、小渲染1倍模板估算内存，按从大到小的顺序排队
+        FastHandler large = handler((int) (templateBytes * 20 / 4096));
+        Future<?> largeFuture = acquireAsync(large);
+        awaitQueueDepth(FastTemplateAdmission.SIZE_LARGE, 1);
+        FastHandler medium = handler((int) (templateBytes * 8 / 4096));
+        Future<?> mediumFuture = acquireAsync(medium);
+        awaitQueueDepth(FastTemplateAdmission.SIZE_MEDIUM, 1);
+        FastHandler small = handler(0);
+        Future<?> smallFuture = acquireAsync(small);
+        awaitQueueDepth(FastTemplateAdmission.SIZE_SMALL, 1);
+
+        //只空出小渲染的预算
+        adjust(full, 63);
+        smallFuture.get(5, TimeUnit.SECONDS);
+        admitted.add(small);
+        assertEquals(1, FastTemplateAdmission.getQueueDepth(FastTemplateAdmission.SIZE_MEDIUM));
+        assertEquals(1, FastTemplateAdmission.getQueueDepth(FastTemplateAdmission.SIZE_LARGE));
+
+        //空出的预算可容纳中渲染，不足以容纳先排队的大渲染
+        adjust(full, 54);
+        mediumFuture.get(5, TimeUnit.SECONDS);
+        admitted.add(medium);
+        assertEquals(1, FastTemplateAdmission.getQueueDepth(FastTemplateAdmission.SIZE_LARGE));
+
+        FastTemplateAdmission.release(full);
+        largeFuture.get(5, TimeUnit.SECONDS);
+        admitted.add(large);
+        assertEquals(0, FastTemplateAdmission.getQueueDepth());
+    }
+
+    @Test
+    public void rejectedWhenQueueFull() throws Exception {
+        templateConfig.setAdmissionQueueSize(0);
+        acquire(1000000);
+        long rejectedCount = FastTemplateAdmission.getRejectedCount();
+        try {
+            acquire(0);
+            fail("排队已满时应拒绝");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(rejectedCount + 1, FastTemplateAdmission.getRejectedCount());
+        }
+    }
+
+    @Test
+    public void rejectedAfterTimeout() throws Exception {
+        templateConfig.setAdmissionTimeout(100);
+        acquire(1000000);
+        long beginTime = System.currentTimeMillis();
+        try {
+            acquire(0);
+            fail("等待超时时应拒绝");
+        } catch (RejectedExecutionException expected) {
+            assertTrue(System.currentTimeMillis() - beginTime >= 100);
+            assertEquals(0, FastTemplateAdmission.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void adjustFreesBudget() throws Exception {
+        templateConfig.setAdmissionTimeout(5000);
+        FastHandler full = acquire(1000000);
+        FastHandler small = handler(0);
+        Future<?> smallFuture = acquireAsync(small);
+        awaitQueueDepth(FastTemplateAdmission.SIZE_SMALL, 1);
+        //展开后的实际单元格数较少，修正估算后排队的渲染可以准入
+        FastTemplateAdmission.adjust(full, 10);
+        smallFuture.get(5, TimeUnit.SECONDS);
+        admitted.add(small);
+    }
+}
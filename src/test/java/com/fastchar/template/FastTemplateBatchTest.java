@@ -0,0 +1,82 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastHandler;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.fastchar.template.info.FastTemplateJob;
+import com.fastchar.template.info.FastTemplateResult;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量渲染的测试：结果与任务一一对应，共用渲染句柄的任务被拒绝
+ */
+public class FastTemplateBatchTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("fast-template-batch").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static FastCompiledTemplate template() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("batch").createRow(0).createCell(0).setCellValue("${name}");
+        return FastTemplateCache.get(FastTestTemplates.write(workbook));
+    }
+
+    private FastTemplateJob job(FastHandler handler, String name) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", name);
+        return new FastTemplateJob().setHandler(handler).setData(data)
+                .setSaveFile(new File(dir, name + ".xlsx").getAbsolutePath());
+    }
+
+    @Test
+    public void resultsKeepTheirJobs() throws Exception {
+        List<FastTemplateJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            jobs.add(job(null, "job" + i));
+        }
+        List<FastTemplateResult> results = FastTemplateHelper.renderBatch(template(), jobs);
+        assertEquals(jobs.size(), results.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            assertSame(jobs.get(i), results.get(i).getJob());
+            assertTrue(results.get(i).isSuccess());
+            XSSFWorkbook workbook = new XSSFWorkbook(new File(dir, "job" + i + ".xlsx"));
+            assertEquals("job" + i, workbook.getSheetAt(0).getRow(0).getCell(0).getStringCellValue());
+            workbook.close();
+        }
+    }
+
+    @Test
+    public void sharedHandlerRejected() throws Exception {
+        FastHandler handler = new FastHandler();
+        List<FastTemplateJob> jobs = Arrays.asList(job(handler, "first"), job(handler, "second"), job(new FastHandler(), "third"));
+        List<FastTemplateResult> results = FastTemplateHelper.renderBatch(template(), jobs);
+        assertTrue(results.get(0).isSuccess());
+        assertSame(jobs.get(1), results.get(1).getJob());
+        assertTrue(results.get(1).getError() instanceof IllegalArgumentException);
+        assertFalse(new File(dir, "second.xlsx").exists());
+        assertTrue(results.get(2).isSuccess());
+    }
+}
@@ -0,0 +1,220 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.info.FastCompiledTemplate;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 网络模板下载缓存的测试，使用本地 HttpServer 模拟模板服务器
+ */
+public class FastTemplateFetcherTest {
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+
+    private volatile long responseDelay;
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private FastTemplateConfig templateConfig;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                try {
+                    if (responseDelay > 0) {
+                        Thread.sleep(responseDelay);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                String path = exchange.getRequestURI().getPath();
+                byte[] content = contents.get(path);
+                if (content == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                String etag = etags.get(path);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModifiedCount.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(200, content.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(content);
+                outputStream.close();
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        templateConfig.setTemplateFetchTtl(60 * 1000L)
+                .setTemplateFetchMaxSize(64 * 1024 * 1024L)
+                .setTemplateFetchDiskDir(null)
+                .setTemplateCacheSize(64);
+        FastTemplateFetcher.clear();
+        FastTemplateCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        FastTemplateFetcher.clear();
+        FastTemplateCache.clear();
+    }
+
+    private String publish(String path, String content, String etag) throws Exception {
+        contents.put(path, content.getBytes("UTF-8"));
+        etags.put(path, etag);
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    public void cachedWithinTtl() throws Exception {
+        String url = publish("/a.xlsx", "template-a", "\"v1\"");
+        FastCompiledTemplate first = FastTemplateFetcher.compile(url);
+        FastCompiledTemplate second = FastTemplateFetcher.compile(url);
+
+        assertSame(first, second);
+        assertEquals("template-a", new String(second.getContent(), "UTF-8"));
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void revalidatesAfterTtl() throws Exception {
+        templateConfig.setTemplateFetchTtl(0);
+        String url = publish("/a.xlsx", "template-a", "\"v1\"");
+        FastCompiledTemplate first = FastTemplateFetcher.compile(url);
+
+        //未修改时服务器返回304，继续使用已解析的模板
+        FastCompiledTemplate second = FastTemplateFetcher.compile(url);
+        assertSame(first, second);
+        assertEquals(2, requestCount.get());
+        assertEquals(1, notModifiedCount.get());
+
+        //修改后返回200及新内容
+        publish("/a.xlsx", "template-b", "\"v2\"");
+        FastCompiledTemplate third = FastTemplateFetcher.compile(url);
+        assertNotSame(first, third);
+        assertEquals("template-b", new String(third.getContent(), "UTF-8"));
+        assertEquals(3, requestCount.get());
+        assertEquals(1, notModifiedCount.get());
+    }
+
+    @Test
+    public void concurrentLoadsDownloadOnce() throws Exception {
+        final String url = publish("/a.xlsx", "template-a", "\"v1\"");
+        responseDelay = 300;
+        int threads = 8;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executorService.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        startLatch.await();
+                        return FastTemplateFetcher.getContent(url);
+                    }
+                }));
+            }
+            startLatch.countDown();
+            for (Future<byte[]> future : futures) {
+                assertEquals("template-a", new String(future.get(10, TimeUnit.SECONDS), "UTF-8"));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void evictionUnderMemoryPressure() throws Exception {
+        //每个模板都超出内存上限，下载后立即淘汰之前的模板
+        templateConfig.setTemplateFetchMaxSize(1);
+        final List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            urls.add(publish("/t" + i + ".xlsx", "template-" + i, "\"v" + i + "\""));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final int index = i;
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int n = 0; n < 50; n++) {
+                            int urlIndex = (index + n) % urls.size();
+                            FastCompiledTemplate compiledTemplate = FastTemplateFetcher.compile(urls.get(urlIndex));
+                            assertEquals("template-" + urlIndex, new String(compiledTemplate.getContent(), "UTF-8"));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void spilledTemplateReloadsFromDisk() throws Exception {
+        File diskDir = new File(System.getProperty("java.io.tmpdir"), "fastchar-template-fetch-" + System.nanoTime());
+        templateConfig.setTemplateFetchMaxSize(16).setTemplateFetchDiskDir(diskDir.getAbsolutePath());
+        String urlA = publish("/a.xlsx", "template-a", "\"a\"");
+        String urlB = publish("/b.xlsx", "template-b", "\"b\"");
+
+        FastCompiledTemplate first = FastTemplateFetcher.compile(urlA);
+        FastTemplateFetcher.compile(urlB);
+        //a 已写入磁盘，其解析模板同时被移除
+        assertNull(FastTemplateCache.get(first.getKey()));
+
+        FastCompiledTemplate second = FastTemplateFetcher.compile(urlA);
+        assertEquals("template-a", new String(second.getContent(), "UTF-8"));
+        assertEquals(2, requestCount.get());
+        FastTemplateFetcher.clear();
+        File[] files = diskDir.listFiles();
+        assertTrue(files == null || files.length == 0);
+        assertTrue(!diskDir.exists() || diskDir.delete());
+    }
+}
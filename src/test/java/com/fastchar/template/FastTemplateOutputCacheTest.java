@@ -0,0 +1,86 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.core.FastHandler;
+import com.fastchar.template.info.FastTemplateMetrics;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 渲染结果缓存的测试：只有变量全部直接取自 __data 的渲染结果才会缓存
+ */
+public class FastTemplateOutputCacheTest {
+
+    @Before
+    public void setUp() {
+        FastTemplateOutputCache.clear();
+        FastChar.getConfig(FastTemplateConfig.class).setOutputCache(true);
+    }
+
+    @After
+    public void tearDown() {
+        FastChar.getConfig(FastTemplateConfig.class).setOutputCache(false);
+        FastTemplateOutputCache.clear();
+    }
+
+    private static byte[] template(String text) throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("cache").createRow(0).createCell(0).setCellValue(text);
+        return FastTestTemplates.write(workbook);
+    }
+
+    private static boolean renderCached(byte[] template, Map<String, Object> data) throws Exception {
+        FastHandler handler = new FastHandler();
+        FastTestTemplates.render(handler, data, template, "xlsx");
+        return ((FastTemplateMetrics) handler.get("__metrics")).isCached();
+    }
+
+    private static Map<String, Object> data() {
+        Map<String, Object> user = new HashMap<>();
+        user.put("name", "张三");
+        Map<String, Object> data = new HashMap<>();
+        data.put("user", user);
+        data.put("title", "标题");
+        return data;
+    }
+
+    @Test
+    public void contextDataOnly() {
+        FastHandler handler = new FastHandler();
+        handler.put("__data", data());
+        FastTemplateContext context = new FastTemplateContext(handler);
+        assertEquals("张三", context.getData("user.name"));
+        assertNull(context.getData("missing"));
+        assertTrue(context.isDataOnly());
+
+        //无法按Map路径解析的变量交由 FastMapWrap 处理
+        context.getData("user.getName()");
+        assertFalse(context.isDataOnly());
+    }
+
+    @Test
+    public void dataOnlyRenderCached() throws Exception {
+        byte[] template = template("${title}-${user.name}");
+        assertFalse(renderCached(template, data()));
+        assertTrue(renderCached(template, data()));
+
+        //数据变化时不命中缓存
+        Map<String, Object> changed = data();
+        changed.put("title", "新标题");
+        assertFalse(renderCached(template, changed));
+    }
+
+    @Test
+    public void mapWrapRenderNotCached() throws Exception {
+        byte[] template = template("${title}-${user.getName()}");
+        assertFalse(renderCached(template, data()));
+        assertFalse(renderCached(template, data()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.fastchar.template;
+
+import com.fastchar.core.FastHandler;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 测试使用的工具方法：在内存中生成模板，并通过 FastTemplateHelper 渲染
+ */
+public final class FastTestTemplates {
+
+    private FastTestTemplates() {
+    }
+
+    public static byte[] write(Workbook workbook) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        workbook.write(outputStream);
+        workbook.close();
+        return outputStream.toByteArray();
+    }
+
+    public static byte[] write(XWPFDocument document) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        document.write(outputStream);
+        document.close();
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 渲染模板，渲染失败时抛出异常
+     *
+     * @param handler  渲染句柄，为null时新建
+     * @param data     数据集合
+     * @param template 模板内容
+     * @param fileType 输出的文件类型
+     * @return 渲染后的文件内容
+     */
+    public static byte[] render(FastHandler handler, Map<String, Object> data, byte[] template, String fileType) throws Exception {
+        if (handler == null) {
+            handler = new FastHandler();
+        }
+        handler.put("__data", data);
+        byte[] bytes = FastTemplateHelper.renderBytes(handler, FastTemplateCache.get(template), fileType);
+        if (handler.get("__exception") != null) {
+            throw new IllegalStateException((Throwable) handler.get("__exception"));
+        }
+        return bytes;
+    }
+
+    public static byte[] render(Map<String, Object> data, byte[] template, String fileType) throws Exception {
+        return render(null, data, template, fileType);
+    }
+
+    public static XSSFWorkbook readXlsx(byte[] content) throws IOException {
+        return new XSSFWorkbook(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * 读取zip格式文件（xlsx、docx）中的全部条目，按条目顺序返回
+     */
+    public static Map<String, byte[]> readEntries(byte[] content) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(content));
+        try {
+            ZipEntry entry;
+            byte[] buffer = new byte[8192];
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                int length;
+                while ((length = zipInputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, length);
+                }
+                entries.put(entry.getName(), outputStream.toByteArray());
+            }
+        } finally {
+            zipInputStream.close();
+        }
+        return entries;
+    }
+
+    public static XWPFDocument readDocx(byte[] content) throws IOException {
+        return new XWPFDocument(new ByteArrayInputStream(content));
+    }
+}
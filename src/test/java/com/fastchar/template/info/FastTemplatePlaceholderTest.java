@@ -0,0 +1,85 @@
+package com.fastchar.template.info;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 占位符解析及预编译变量路径的测试
+ */
+public class FastTemplatePlaceholderTest {
+
+    @Test
+    public void parseAllPlaceholdersInOrder() {
+        String text = "合同${code}，甲方${ name }元${list[i].amount}";
+        List<FastTemplatePlaceholder> placeholders = FastTemplatePlaceholder.parse(text);
+        assertEquals(3, placeholders.size());
+
+        FastTemplatePlaceholder first = placeholders.get(0);
+        assertEquals("code", first.getKey());
+        assertEquals(text.indexOf("${code}"), first.getStart());
+        assertEquals(text.indexOf("${code}") + "${code}".length(), first.getEnd());
+        assertFalse(first.isList());
+
+        assertEquals("name", placeholders.get(1).getKey());
+        assertEquals("list[i].amount", placeholders.get(2).getKey());
+        assertEquals(text.length(), placeholders.get(2).getEnd());
+    }
+
+    @Test
+    public void parseWithoutPlaceholders() {
+        assertTrue(FastTemplatePlaceholder.parse(null).isEmpty());
+        assertTrue(FastTemplatePlaceholder.parse("没有变量").isEmpty());
+        //未闭合的占位符不解析
+        assertTrue(FastTemplatePlaceholder.parse("金额${amount").isEmpty());
+        assertEquals(1, FastTemplatePlaceholder.parse("${a}后${b").size());
+    }
+
+    @Test
+    public void listKeys() {
+        FastTemplatePlaceholder placeholder = FastTemplatePlaceholder.parse("${list[i].name}").get(0);
+        assertTrue(placeholder.isList());
+        assertEquals(Collections.singletonList("list"), placeholder.getListKeys());
+        assertEquals("list[3].name", placeholder.getKey(3));
+        assertEquals("list[i].name", placeholder.getKey(-1));
+
+        FastTemplatePlaceholder nested = FastTemplatePlaceholder.parse("${order.items[ i ].name}").get(0);
+        assertEquals(Collections.singletonList("order.items"), nested.getListKeys());
+        assertEquals("order.items", nested.getKeyPath().getListKey());
+    }
+
+    @Test
+    public void keyPathResolve() {
+        Map<String, Object> item = new HashMap<>();
+        item.put("name", "名称1");
+        Map<String, Object> order = new HashMap<>();
+        order.put("items", Arrays.asList(new HashMap<String, Object>(), item));
+        order.put("tags", new String[]{"a", "b"});
+        Map<String, Object> data = new HashMap<>();
+        data.put("order", order);
+
+        assertEquals("名称1", FastTemplateKeyPath.compile("order.items[1].name").resolve(data, -1));
+        assertEquals("名称1", FastTemplateKeyPath.compile("order.items[i].name").resolve(data, 1));
+        assertEquals("b", FastTemplateKeyPath.compile("order.tags[1]").resolve(data, -1));
+        assertEquals(2, FastTemplateKeyPath.compile("order.tags.length").resolve(data, -1));
+        assertNull(FastTemplateKeyPath.compile("order.items[5].name").resolve(data, -1));
+        assertNull(FastTemplateKeyPath.compile("missing.name").resolve(data, -1));
+
+        FastTemplateKeyPath listPath = FastTemplateKeyPath.compile("order.items[i].name");
+        assertEquals("名称1", listPath.resolveList(order.get("items"), 1));
+        //列表下标未指定时交由 FastMapWrap 处理
+        assertSame(FastTemplateKeyPath.UNRESOLVED, listPath.resolve(data, -1));
+    }
+
+    @Test
+    public void keyPathUnresolved() {
+        //方法调用等无法按Map、List解析的路径
+        FastTemplateKeyPath keyPath = FastTemplateKeyPath.compile("user.getName()");
+        assertSame(FastTemplateKeyPath.UNRESOLVED, keyPath.resolve(new HashMap<String, Object>(), -1));
+        assertSame(FastTemplateKeyPath.UNRESOLVED, FastTemplateKeyPath.compile("name.first").resolve(Collections.singletonMap("name", "text"), -1));
+        assertFalse(keyPath.isList());
+        assertNull(keyPath.getListKey());
+    }
+}
@@ -0,0 +1,59 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.template.FastTestTemplates;
+import com.fastchar.template.info.FastExcelColumnInfo;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * FastExcelDataWriter 按列类型转换字符串值的测试
+ */
+public class FastExcelDataWriterTest {
+
+    private static Sheet write(String type, String... values) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        for (String value : values) {
+            rows.add(Collections.singletonList(value));
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new FastExcelDataWriter()
+                .addColumn(new FastExcelColumnInfo().setTitle("值").setType(type))
+                .write(rows, outputStream);
+        XSSFWorkbook workbook = FastTestTemplates.readXlsx(outputStream.toByteArray());
+        return workbook.getSheetAt(0);
+    }
+
+    @Test
+    public void numberStringsKeepPrecision() throws Exception {
+        Sheet sheet = write(FastExcelColumnInfo.TYPE_NUMBER, "123.45", "1234567890123456789", "100000000000000000000", "abc");
+        assertEquals(CellType.NUMERIC, sheet.getRow(1).getCell(0).getCellType());
+        assertEquals(123.45, sheet.getRow(1).getCell(0).getNumericCellValue(), 0);
+        assertEquals(CellType.STRING, sheet.getRow(2).getCell(0).getCellType());
+        assertEquals("1234567890123456789", sheet.getRow(2).getCell(0).getStringCellValue());
+        assertEquals(1e20, sheet.getRow(3).getCell(0).getNumericCellValue(), 0);
+        assertEquals("abc", sheet.getRow(4).getCell(0).getStringCellValue());
+    }
+
+    @Test
+    public void booleanStrings() throws Exception {
+        List<String> values = Arrays.asList("true", "1", "Y", "是", "FALSE", "0", "否", "未知");
+        Sheet sheet = write(FastExcelColumnInfo.TYPE_BOOLEAN, values.toArray(new String[0]));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(sheet.getRow(i + 1).getCell(0).getBooleanCellValue());
+        }
+        for (int i = 4; i < 7; i++) {
+            assertFalse(sheet.getRow(i + 1).getCell(0).getBooleanCellValue());
+        }
+        assertEquals("未知", sheet.getRow(8).getCell(0).getStringCellValue());
+    }
+}
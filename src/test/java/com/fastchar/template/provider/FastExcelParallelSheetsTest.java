@@ -0,0 +1,91 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.FastTemplateConfig;
+import com.fastchar.template.FastTestTemplates;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Excel多工作表并行解析的测试：输出的各文件内容必须与顺序渲染逐字节一致
+ */
+public class FastExcelParallelSheetsTest {
+
+    @After
+    public void tearDown() {
+        FastChar.getConfig(FastTemplateConfig.class).setExcelParallelSheets(false);
+    }
+
+    private static byte[] template() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        for (int i = 0; i < 4; i++) {
+            Sheet sheet = workbook.createSheet("sheet" + i);
+            sheet.createRow(0).createCell(0).setCellValue("${title}-" + i);
+            Row listRow = sheet.createRow(1);
+            listRow.createCell(0).setCellValue("${list[i].name}");
+            listRow.createCell(1).setCellValue("${list[i].value}");
+            listRow.createCell(2).setCellValue("第${list[i].value}行：${list[i].name}");
+            sheet.createRow(2).createCell(0).setCellValue("合计：${total}");
+            //第二个列表行只在部分工作表中出现，各工作表的变量数量不同
+            if (i % 2 == 0) {
+                sheet.createRow(4).createCell(1).setCellValue("${items[i]}");
+            }
+        }
+        return FastTestTemplates.write(workbook);
+    }
+
+    private static Map<String, Object> data() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", "名称" + i);
+            item.put("value", i);
+            list.add(item);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "并行");
+        data.put("total", list.size());
+        data.put("list", list);
+        data.put("items", Arrays.asList("a", "b", "c"));
+        return data;
+    }
+
+    @Test
+    public void parallelOutputMatchesSequential() throws Exception {
+        byte[] template = template();
+        Map<String, Object> data = data();
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+
+        templateConfig.setExcelParallelSheets(false);
+        byte[] sequential = FastTestTemplates.render(data, template, "xlsx");
+        templateConfig.setExcelParallelSheets(true);
+        byte[] parallel = FastTestTemplates.render(data, template, "xlsx");
+
+        //zip条目的修改时间为写出时的时间，逐个比较条目内容
+        Map<String, byte[]> sequentialEntries = FastTestTemplates.readEntries(sequential);
+        Map<String, byte[]> parallelEntries = FastTestTemplates.readEntries(parallel);
+        assertEquals(sequentialEntries.keySet(), parallelEntries.keySet());
+        for (Map.Entry<String, byte[]> entry : sequentialEntries.entrySet()) {
+            assertArrayEquals(entry.getValue(), parallelEntries.get(entry.getKey()));
+        }
+
+        XSSFWorkbook workbook = FastTestTemplates.readXlsx(parallel);
+        for (int i = 0; i < 4; i++) {
+            Sheet sheet = workbook.getSheetAt(i);
+            assertEquals("并行-" + i, sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("名称299", sheet.getRow(300).getCell(0).getStringCellValue());
+            assertEquals("第299行：名称299", sheet.getRow(300).getCell(2).getStringCellValue());
+            assertEquals("合计：300", sheet.getRow(301).getCell(0).getStringCellValue());
+            if (i % 2 == 0) {
+                assertEquals("c", sheet.getRow(305).getCell(1).getStringCellValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.FastTemplateConfig;
+import com.fastchar.template.FastTestTemplates;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式渲染按行数拆分的测试：拆分为多个工作表或zip中的多个xlsx文件，每个部分重复表头行
+ */
+public class FastExcelSplitTest {
+
+    private static final int ROWS = 8;
+
+    private static final int SPLIT_ROWS = 3;
+
+    private boolean streaming;
+
+    private int splitRows;
+
+    @Before
+    public void setUp() {
+        FastTemplateConfig templateConfig = FastChar.getConfig(FastTemplateConfig.class);
+        streaming = templateConfig.isExcelStreaming();
+        splitRows = templateConfig.getExcelSplitRows();
+        templateConfig.setExcelStreaming(true).setExcelSplitRows(SPLIT_ROWS);
+    }
+
+    @After
+    public void tearDown() {
+        FastChar.getConfig(FastTemplateConfig.class).setExcelStreaming(streaming).setExcelSplitRows(splitRows);
+    }
+
+    /**
+     * 表头行、列表行、合计行，表头行的公式引用列表行至合计行，列表行及合计行的公式引用本行
+     */
+    private static byte[] template() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("明细");
+        Row headRow = sheet.createRow(0);
+        headRow.createCell(0).setCellValue("${title}");
+        headRow.createCell(1).setCellValue("数值");
+        headRow.createCell(2).setCellFormula("SUM(B2:B3)");
+        Row listRow = sheet.createRow(1);
+        listRow.createCell(0).setCellValue("${list[i].name}");
+        listRow.createCell(1).setCellValue("${list[i].value}");
+        listRow.createCell(3).setCellFormula("B2*2");
+        Row tailRow = sheet.createRow(2);
+        tailRow.createCell(0).setCellValue("合计");
+        tailRow.createCell(1).setCellFormula("C3*2");
+        tailRow.createCell(2).setCellValue(10);
+        return FastTestTemplates.write(workbook);
+    }
+
+    private static Map<String, Object> data() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", "名称" + i);
+            item.put("value", i);
+            list.add(item);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "明细表");
+        data.put("list", list);
+        return data;
+    }
+
+    /**
+     * 检查拆分出的一个部分：表头行重复，列表行为第first行开始的rows行，列表行的公式指向所在行
+     */
+    private static void assertChunk(Sheet sheet, int first, int rows) {
+        assertEquals("明细表", sheet.getRow(0).getCell(0).getStringCellValue());
+        assertEquals("数值", sheet.getRow(0).getCell(1).getStringCellValue());
+        for (int i = 0; i < rows; i++) {
+            assertEquals("名称" + (first + i), sheet.getRow(i + 1).getCell(0).getStringCellValue());
+            assertEquals(first + i, (int) sheet.getRow(i + 1).getCell(1).getNumericCellValue());
+            assertEquals("B" + (i + 2) + "*2", sheet.getRow(i + 1).getCell(3).getCellFormula());
+        }
+    }
+
+    /**
+     * 表头行的公式按该部分写出的列表行数移动
+     */
+    private static void assertHeadFormula(Sheet sheet, int rows) {
+        assertEquals("SUM(B2:B" + (rows + 2) + ")", sheet.getRow(0).getCell(2).getCellFormula());
+    }
+
+    /**
+     * 合计行只在最后一个部分中，公式指向移动后的行
+     */
+    private static void assertTail(Sheet sheet, int rows) {
+        Row tailRow = sheet.getRow(rows + 1);
+        assertEquals("合计", tailRow.getCell(0).getStringCellValue());
+        assertEquals("C" + (rows + 2) + "*2", tailRow.getCell(1).getCellFormula());
+        assertEquals(rows + 1, sheet.getLastRowNum());
+    }
+
+    @Test
+    public void splitToSheets() throws Exception {
+        XSSFWorkbook workbook = FastTestTemplates.readXlsx(FastTestTemplates.render(data(), template(), "xlsx"));
+        assertEquals(3, workbook.getNumberOfSheets());
+        assertEquals("明细", workbook.getSheetAt(0).getSheetName());
+        assertEquals("明细 (2)", workbook.getSheetAt(1).getSheetName());
+        assertEquals("明细 (3)", workbook.getSheetAt(2).getSheetName());
+        assertChunk(workbook.getSheetAt(0), 0, SPLIT_ROWS);
+        assertHeadFormula(workbook.getSheetAt(0), SPLIT_ROWS);
+        assertEquals(SPLIT_ROWS, workbook.getSheetAt(0).getLastRowNum());
+        assertChunk(workbook.getSheetAt(1), 3, SPLIT_ROWS);
+        assertHeadFormula(workbook.getSheetAt(1), SPLIT_ROWS);
+        assertEquals(SPLIT_ROWS, workbook.getSheetAt(1).getLastRowNum());
+        assertChunk(workbook.getSheetAt(2), 6, 2);
+        assertHeadFormula(workbook.getSheetAt(2), 2);
+        assertTail(workbook.getSheetAt(2), 2);
+    }
+
+    @Test
+    public void splitToZip() throws Exception {
+        Map<String, byte[]> entries = FastTestTemplates.readEntries(FastTestTemplates.render(data(), template(), "zip"));
+        assertEquals(3, entries.size());
+        List<Sheet> sheets = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            //文件名取输出文件名 template.zip 去掉后缀
+            byte[] content = entries.get("template_" + i + ".xlsx");
+            assertNotNull(content);
+            XSSFWorkbook workbook = FastTestTemplates.readXlsx(content);
+            assertEquals(1, workbook.getNumberOfSheets());
+            sheets.add(workbook.getSheetAt(0));
+        }
+        assertChunk(sheets.get(0), 0, SPLIT_ROWS);
+        assertHeadFormula(sheets.get(0), SPLIT_ROWS);
+        assertEquals(SPLIT_ROWS, sheets.get(0).getLastRowNum());
+        assertChunk(sheets.get(1), 3, SPLIT_ROWS);
+        assertHeadFormula(sheets.get(1), SPLIT_ROWS);
+        assertEquals(SPLIT_ROWS, sheets.get(1).getLastRowNum());
+        assertChunk(sheets.get(2), 6, 2);
+        assertHeadFormula(sheets.get(2), 2);
+        assertTail(sheets.get(2), 2);
+    }
+}
@@ -0,0 +1,103 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.core.FastChar;
+import com.fastchar.template.FastTestTemplates;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Excel单元格按变量值类型写入的测试
+ */
+public class FastExcelTypedCellTest {
+
+    private static final long MAX_EXACT = 1L << 53;
+
+    @Test
+    public void exactNumbers() {
+        assertTrue(FastExcelTemplateRender.isExactNumber(MAX_EXACT));
+        assertTrue(FastExcelTemplateRender.isExactNumber(-MAX_EXACT));
+        assertFalse(FastExcelTemplateRender.isExactNumber(MAX_EXACT + 1));
+        assertFalse(FastExcelTemplateRender.isExactNumber(new AtomicLong(MAX_EXACT + 1)));
+        assertTrue(FastExcelTemplateRender.isExactNumber(BigInteger.valueOf(MAX_EXACT - 1)));
+        assertFalse(FastExcelTemplateRender.isExactNumber(BigInteger.valueOf(MAX_EXACT)));
+        assertTrue(FastExcelTemplateRender.isExactNumber(new BigDecimal("123456789012345")));
+        assertTrue(FastExcelTemplateRender.isExactNumber(new BigDecimal("1234567890.12345")));
+        assertFalse(FastExcelTemplateRender.isExactNumber(new BigDecimal("1234567890123456")));
+        assertTrue(FastExcelTemplateRender.isExactNumber(12.5));
+        assertFalse(FastExcelTemplateRender.isExactNumber(Double.NaN));
+        assertFalse(FastExcelTemplateRender.isExactNumber(Float.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void typedCells() throws Exception {
+        XSSFWorkbook template = new XSSFWorkbook();
+        Sheet templateSheet = template.createSheet("typed");
+        CellStyle moneyStyle = template.createCellStyle();
+        moneyStyle.setDataFormat(template.createDataFormat().getFormat("0.00"));
+        CellStyle dateStyle = template.createCellStyle();
+        dateStyle.setDataFormat(template.createDataFormat().getFormat("yyyy/mm/dd"));
+        String[] keys = {"exact", "overflow", "digits15", "digits16", "money", "none", "flag", "date", "localDate", "mixed"};
+        for (int i = 0; i < keys.length; i++) {
+            Cell cell = templateSheet.createRow(i).createCell(0);
+            cell.setCellValue("mixed".equals(keys[i]) ? "金额：${money}" : "${" + keys[i] + "}");
+            if ("money".equals(keys[i]) || "date".equals(keys[i])) {
+                cell.setCellStyle(moneyStyle);
+            } else if ("localDate".equals(keys[i])) {
+                cell.setCellStyle(dateStyle);
+            }
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("exact", MAX_EXACT);
+        data.put("overflow", MAX_EXACT + 1);
+        data.put("digits15", new BigDecimal("123456789012345"));
+        data.put("digits16", new BigDecimal("1234567890123456"));
+        data.put("money", 12.5);
+        data.put("flag", true);
+        data.put("date", new Date(0));
+        data.put("localDate", LocalDate.of(2021, 12, 6));
+        Sheet sheet = FastTestTemplates.readXlsx(FastTestTemplates.render(data, FastTestTemplates.write(template), "xlsx")).getSheetAt(0);
+
+        assertEquals(CellType.NUMERIC, cell(sheet, 0).getCellType());
+        assertEquals((double) MAX_EXACT, cell(sheet, 0).getNumericCellValue(), 0);
+        assertEquals(CellType.STRING, cell(sheet, 1).getCellType());
+        assertEquals(String.valueOf(MAX_EXACT + 1), cell(sheet, 1).getStringCellValue());
+        assertEquals(CellType.NUMERIC, cell(sheet, 2).getCellType());
+        assertEquals(123456789012345d, cell(sheet, 2).getNumericCellValue(), 0);
+        assertEquals(CellType.STRING, cell(sheet, 3).getCellType());
+        assertEquals("1234567890123456", cell(sheet, 3).getStringCellValue());
+
+        //沿用模板单元格的数字格式
+        assertEquals(12.5, cell(sheet, 4).getNumericCellValue(), 0);
+        assertEquals("0.00", cell(sheet, 4).getCellStyle().getDataFormatString());
+
+        assertEquals(CellType.BLANK, cell(sheet, 5).getCellType());
+        assertTrue(cell(sheet, 6).getBooleanCellValue());
+
+        //单元格不是日期格式时使用 FastChar 的日期格式，是日期格式时保持不变
+        Cell dateCell = cell(sheet, 7);
+        assertEquals(new Date(0), dateCell.getDateCellValue());
+        assertEquals(FastChar.getConstant().getDateFormat(), dateCell.getCellStyle().getDataFormatString());
+        assertTrue(DateUtil.isCellDateFormatted(dateCell));
+        Cell localDateCell = cell(sheet, 8);
+        assertEquals("yyyy/mm/dd", localDateCell.getCellStyle().getDataFormatString());
+        assertEquals(LocalDate.of(2021, 12, 6), localDateCell.getLocalDateTimeCellValue().toLocalDate());
+
+        assertEquals("金额：12.5", cell(sheet, 9).getStringCellValue());
+    }
+
+    private static Cell cell(Sheet sheet, int rowNum) {
+        return sheet.getRow(rowNum).getCell(0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.template.FastTestTemplates;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Word段落变量替换的测试：变量可跨越多个文本块，文本块的格式保持不变
+ */
+public class FastWordParagraphTest {
+
+    /**
+     * 渲染只有一个段落的文档，段落由指定的文本块组成，第一个文本块加粗
+     */
+    private static List<XWPFRun> render(String... runTexts) throws Exception {
+        XWPFDocument document = new XWPFDocument();
+        XWPFParagraph paragraph = document.createParagraph();
+        for (int i = 0; i < runTexts.length; i++) {
+            XWPFRun run = paragraph.createRun();
+            run.setText(runTexts[i]);
+            run.setBold(i == 0);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("code", "HT-001");
+        data.put("name", "某某公司");
+        data.put("a", "A");
+        data.put("b", "B");
+        byte[] content = FastTestTemplates.render(data, FastTestTemplates.write(document), "docx");
+        return FastTestTemplates.readDocx(content).getParagraphs().get(0).getRuns();
+    }
+
+    private static String text(XWPFRun run) {
+        String text = run.getText(0);
+        return text == null ? "" : text;
+    }
+
+    @Test
+    public void placeholderInsideRun() throws Exception {
+        List<XWPFRun> runs = render("合同编号：", "${code}，甲方：${name}。");
+        assertEquals("合同编号：", text(runs.get(0)));
+        assertTrue(runs.get(0).isBold());
+        assertEquals("HT-001，甲方：某某公司。", text(runs.get(1)));
+    }
+
+    @Test
+    public void placeholderSpanningRuns() throws Exception {
+        //变量的值写入变量起始的文本块，变量覆盖的其他文本块清空，变量之后的文本保留在原文本块中
+        List<XWPFRun> runs = render("编号：$", "{", "co", "de}", "，结束");
+        assertEquals("编号：HT-001", text(runs.get(0)));
+        assertTrue(runs.get(0).isBold());
+        assertEquals("", text(runs.get(1)));
+        assertEquals("", text(runs.get(2)));
+        assertEquals("", text(runs.get(3)));
+        assertEquals("，结束", text(runs.get(4)));
+    }
+
+    @Test
+    public void adjacentPlaceholders() throws Exception {
+        List<XWPFRun> runs = render("${a}${b}", "-${a", "}${b}");
+        assertEquals("AB", text(runs.get(0)));
+        assertEquals("-A", text(runs.get(1)));
+        assertEquals("B", text(runs.get(2)));
+    }
+
+    @Test
+    public void unclosedPlaceholderKept() throws Exception {
+        List<XWPFRun> runs = render("${a}", "金额${b");
+        assertEquals("A", text(runs.get(0)));
+        assertEquals("金额${b", text(runs.get(1)));
+    }
+}
@@ -0,0 +1,58 @@
+package com.fastchar.template.provider;
+
+import com.fastchar.template.FastTestTemplates;
+import org.apache.poi.xwpf.usermodel.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Word表格列表行展开的测试：多个段落的列表单元格展开后保持原段落结构
+ */
+public class FastWordTableTest {
+
+    private static byte[] template() throws Exception {
+        XWPFDocument document = new XWPFDocument();
+        XWPFTable table = document.createTable(2, 2);
+        table.getRow(0).getCell(0).setText("名称");
+        table.getRow(0).getCell(1).setText("明细");
+        table.getRow(1).getCell(0).setText("${list[i].name}");
+        XWPFTableCell cell = table.getRow(1).getCell(1);
+        XWPFRun run = cell.getParagraphs().get(0).createRun();
+        run.setBold(true);
+        run.setText("数量：${list[i].count}");
+        cell.addParagraph().createRun().setText("备注：${list[i].remark}");
+        cell.addParagraph().createRun().setText("——");
+        return FastTestTemplates.write(document);
+    }
+
+    @Test
+    public void multiParagraphListCell() throws Exception {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", "名称" + i);
+            item.put("count", i);
+            item.put("remark", "备注" + i);
+            list.add(item);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("list", list);
+        XWPFTable table = FastTestTemplates.readDocx(FastTestTemplates.render(data, template(), "docx")).getTables().get(0);
+
+        assertEquals(4, table.getNumberOfRows());
+        assertEquals("明细", table.getRow(0).getCell(1).getText());
+        for (int i = 0; i < 3; i++) {
+            XWPFTableRow row = table.getRow(i + 1);
+            assertEquals("名称" + i, row.getCell(0).getText());
+            List<XWPFParagraph> paragraphs = row.getCell(1).getParagraphs();
+            assertEquals(3, paragraphs.size());
+            assertEquals("数量：" + i, paragraphs.get(0).getText());
+            assertTrue(paragraphs.get(0).getRuns().get(0).isBold());
+            assertEquals("备注：备注" + i, paragraphs.get(1).getText());
+            assertEquals("——", paragraphs.get(2).getText());
+        }
+    }
+}